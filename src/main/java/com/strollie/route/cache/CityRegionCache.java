@@ -1,102 +1,167 @@
 package com.strollie.route.cache;
 
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.strollie.route.config.ApiKeysConfig;
+import com.strollie.route.service.CategoryCatalogReloadedEvent;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
 
 import java.time.Duration;
-import java.time.Instant;
-import java.util.Map;
+import java.util.Locale;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Кэш идентификаторов регионов и рубрик 2GIS.
+ * <p>
+ * Размер ограничен, записи живут {@code ttl} и после {@code refresh-after} обновляются
+ * в фоне через {@link RegionLookup}, не блокируя чтение; если обновление не удалось,
+ * остаётся прежнее значение. Id рубрик берутся из справочника категорий, поэтому при его
+ * перезагрузке кэш рубрик сбрасывается. Статистику считает Caffeine (на LongAdder).
+ */
 @Slf4j
 @Component
 public class CityRegionCache {
 
-    private static final Duration DEFAULT_TTL = Duration.ofHours(24);
-
-    private final Map<String, CacheEntry<String>> cities = new ConcurrentHashMap<>();
-    private final Map<String, CacheEntry<String>> rubrics = new ConcurrentHashMap<>();
-
-    private long cacheHits = 0;
-    private long cacheMisses = 0;
+    private final ObjectProvider<RegionLookup> lookupProvider;
+    private final AsyncLoadingCache<String, String> cities;
+    private final AsyncLoadingCache<RubricKey, String> rubrics;
+
+    // Точка отсчёта статистики после clearAll (счётчики Caffeine не сбрасываются)
+    private volatile CacheStats cityBaseline = CacheStats.empty();
+    private volatile CacheStats rubricBaseline = CacheStats.empty();
+
+    public CityRegionCache(ApiKeysConfig config, ObjectProvider<RegionLookup> lookupProvider) {
+        ApiKeysConfig.RegionCache settings = config.getGis().getRegionCache();
+        this.lookupProvider = lookupProvider;
+        this.cities = build(settings, settings.getMaxCities(),
+                (city, previous) -> lookup(l -> l.findRegionId(city), previous));
+        this.rubrics = build(settings, settings.getMaxRubrics(),
+                (key, previous) -> lookup(l -> l.findRubricId(key.regionId(), key.category()), previous));
+    }
 
     public String get(String city) {
-        return getFromCache(cities, normalizeKey(city)).orElse(null);
+        return cities.synchronous().getIfPresent(normalizeKey(city));
     }
 
     public void put(String city, String id) {
-        putToCache(cities, normalizeKey(city), id);
+        cities.put(normalizeKey(city), CompletableFuture.completedFuture(id));
+    }
+
+    /**
+     * Идентификатор региона из кэша или через {@link RegionLookup}; конкурентные промахи
+     * по одному городу объединяются в один запрос.
+     */
+    public Mono<String> regionId(String city) {
+        return Mono.fromFuture(() -> cities.get(normalizeKey(city)), true);
     }
 
     public Optional<String> getRubricId(String regionId, String category) {
-        String key = rubricKey(regionId, category);
-        return getFromCache(rubrics, key);
+        return Optional.ofNullable(rubrics.synchronous().getIfPresent(rubricKey(regionId, category)));
     }
 
     public void putRubricId(String regionId, String category, String rubricId) {
-        String key = rubricKey(regionId, category);
-        putToCache(rubrics, key, rubricId);
+        rubrics.put(rubricKey(regionId, category), CompletableFuture.completedFuture(rubricId));
     }
 
-    private <T> Optional<T> getFromCache(Map<String, CacheEntry<T>> cache, String key) {
-        CacheEntry<T> entry = cache.get(key);
-
-        if (entry == null) {
-            cacheMisses++;
-            return Optional.empty();
-        }
+    public Mono<String> rubricId(String regionId, String category) {
+        return Mono.fromFuture(() -> rubrics.get(rubricKey(regionId, category)), true);
+    }
 
-        if (entry.isExpired()) {
-            cache.remove(key);
-            cacheMisses++;
-            return Optional.empty();
-        }
+    /**
+     * Справочник категорий перезагружен: id рубрик заново разрешаются по новой версии.
+     * Регионы от справочника не зависят и остаются в кэше.
+     */
+    @EventListener
+    public void onCatalogReloaded(CategoryCatalogReloadedEvent event) {
+        rubrics.synchronous().invalidateAll();
+        log.info("Rubric cache cleared after category catalog reload, version {}", event.version());
+    }
 
-        cacheHits++;
-        return Optional.of(entry.value());
+    private <K> AsyncLoadingCache<K, String> build(ApiKeysConfig.RegionCache settings, long maxSize,
+                                                   Loader<K> loader) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofHours(settings.getTtlHours()))
+                .refreshAfterWrite(Duration.ofHours(settings.getRefreshAfterHours()))
+                .recordStats()
+                .buildAsync(new AsyncCacheLoader<K, String>() {
+                    @Override
+                    public CompletableFuture<? extends String> asyncLoad(K key, Executor executor) {
+                        return loader.load(key, null);
+                    }
+
+                    @Override
+                    public CompletableFuture<? extends String> asyncReload(K key, String oldValue, Executor executor) {
+                        return loader.load(key, oldValue);
+                    }
+                });
     }
 
-    private <T> void putToCache(Map<String, CacheEntry<T>> cache, String key, T value) {
-        cache.put(key, new CacheEntry<>(value, Instant.now().plus(DEFAULT_TTL)));
+    private CompletableFuture<String> lookup(Function<RegionLookup, Mono<String>> call, String previous) {
+        RegionLookup lookup = lookupProvider.getIfAvailable();
+        if (lookup == null) {
+            return CompletableFuture.completedFuture(previous);
+        }
+        Mono<String> result = call.apply(lookup)
+                .onErrorResume(e -> {
+                    log.warn("Region lookup failed: {}", e.toString());
+                    return Mono.empty();
+                });
+        // Пустой результат обновления не затирает прежний идентификатор;
+        // при первой загрузке null в будущем — для Caffeine «нет значения», запись не кэшируется
+        return (previous != null ? result.defaultIfEmpty(previous) : result).toFuture();
     }
 
     private String normalizeKey(String key) {
-        return key == null ? "" : key.trim().toLowerCase();
+        return key == null ? "" : key.trim().toLowerCase(Locale.ROOT);
     }
 
-    private String rubricKey(String regionId, String category) {
-        return regionId + ":" + normalizeKey(category);
+    private RubricKey rubricKey(String regionId, String category) {
+        return new RubricKey(String.valueOf(regionId), normalizeKey(category));
     }
 
-    public CacheStats getStats() {
-        return new CacheStats(
-                cities.size(),
-                rubrics.size(),
-                cacheHits,
-                cacheMisses
+    public RegionCacheStats getStats() {
+        CacheStats cityStats = cities.synchronous().stats().minus(cityBaseline);
+        CacheStats rubricStats = rubrics.synchronous().stats().minus(rubricBaseline);
+        return new RegionCacheStats(
+                cities.synchronous().estimatedSize(),
+                rubrics.synchronous().estimatedSize(),
+                cityStats.hitCount() + rubricStats.hitCount(),
+                cityStats.missCount() + rubricStats.missCount(),
+                cityStats.evictionCount() + rubricStats.evictionCount()
         );
     }
 
     public void clearAll() {
-        cities.clear();
-        rubrics.clear();
-        cacheHits = 0;
-        cacheMisses = 0;
+        cities.synchronous().invalidateAll();
+        rubrics.synchronous().invalidateAll();
+        cityBaseline = cities.synchronous().stats();
+        rubricBaseline = rubrics.synchronous().stats();
         log.info("Cache cleared");
     }
 
-    private record CacheEntry<T>(T value, Instant expiresAt) {
-        boolean isExpired() {
-            return Instant.now().isAfter(expiresAt);
-        }
+    @FunctionalInterface
+    private interface Loader<K> {
+        CompletableFuture<String> load(K key, String previous);
+    }
+
+    private record RubricKey(String regionId, String category) {
     }
 
-    public record CacheStats(int cityEntries, int rubricEntries, long hits, long misses) {
+    public record RegionCacheStats(long cityEntries, long rubricEntries, long hits, long misses, long evictions) {
         public double hitRate() {
             long total = hits + misses;
             return total == 0 ? 0 : (double) hits / total;
         }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,217 @@
+package com.strollie.route.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.strollie.route.config.ApiKeysConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Семантический кэш результатов обогащения категорий.
+ * <p>
+ * Записи группируются по (город, исходные категории); внутри группы описание пользователя
+ * сравнивается с прежними по косинусной близости векторов из хэшированных символьных триграмм.
+ * Слова обрезаются до первых букв, поэтому «культурный вечер» и «культурная прогулка вечером»
+ * оказываются близки и второй запрос обходится без LLM.
+ * <p>
+ * Отрицание векторы почти не замечают («хочу в музеи» и «не хочу в музеи» совпадают полностью),
+ * поэтому запись переиспользуется, только если в обоих описаниях отрицаются одни и те же слова.
+ */
+@Slf4j
+@Component
+public class EnrichmentSemanticCache {
+
+    private static final int DIMENSIONS = 512;
+    private static final int STEM_LENGTH = 5;
+    private static final int MIN_TOKEN_LENGTH = 3;
+    private static final Set<String> NEGATIONS = Set.of("не", "ни", "нет", "без");
+
+    private final boolean enabled;
+    private final double threshold;
+    private final int maxEntriesPerGroup;
+    private final long ttlNanos;
+    private final Cache<String, Group> groups;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public EnrichmentSemanticCache(ApiKeysConfig config) {
+        ApiKeysConfig.SemanticCache settings = config.getLlm().getSemanticCache();
+        this.enabled = settings.isEnabled();
+        this.threshold = settings.getSimilarityThreshold();
+        this.maxEntriesPerGroup = settings.getMaxEntriesPerGroup();
+        this.ttlNanos = TimeUnit.MINUTES.toNanos(settings.getTtlMinutes());
+        this.groups = Caffeine.newBuilder()
+                .maximumSize(settings.getMaxGroups())
+                .expireAfterAccess(Duration.ofMinutes(settings.getTtlMinutes()))
+                .build();
+    }
+
+    public Optional<List<String>> find(String city, List<String> categories, String description) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        Group group = groups.getIfPresent(groupKey(city, categories));
+        if (group == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+
+        float[] vector = vectorize(description);
+        Set<String> negated = negated(description);
+        long now = System.nanoTime();
+        Entry best = null;
+        double bestSimilarity = threshold;
+
+        synchronized (group) {
+            for (Entry entry : group.entries) {
+                if (now - entry.createdAt() > ttlNanos || !entry.negated().equals(negated)) {
+                    continue;
+                }
+                double similarity = cosine(vector, entry.vector());
+                if (similarity >= bestSimilarity) {
+                    bestSimilarity = similarity;
+                    best = entry;
+                }
+            }
+        }
+
+        if (best == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+
+        hits.increment();
+        log.info(">>> ENRICHMENT CACHE: '{}' matched '{}' (similarity {})",
+                description, best.description(), String.format(Locale.ROOT, "%.2f", bestSimilarity));
+        return Optional.of(best.categories());
+    }
+
+    public void put(String city, List<String> categories, String description, List<String> enriched) {
+        if (!enabled) {
+            return;
+        }
+
+        Group group = groups.get(groupKey(city, categories), k -> new Group());
+        Entry entry = new Entry(description, vectorize(description), negated(description),
+                List.copyOf(enriched), System.nanoTime());
+        synchronized (group) {
+            group.entries.addFirst(entry);
+            while (group.entries.size() > maxEntriesPerGroup) {
+                group.entries.removeLast();
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private String groupKey(String city, List<String> categories) {
+        String normalizedCategories = categories == null ? "" : categories.stream()
+                .map(c -> c.trim().toLowerCase(Locale.ROOT))
+                .sorted()
+                .reduce((a, b) -> a + "," + b)
+                .orElse("");
+        return (city == null ? "" : city.trim().toLowerCase(Locale.ROOT)) + "|" + normalizedCategories;
+    }
+
+    static float[] vectorize(String text) {
+        float[] vector = new float[DIMENSIONS];
+        for (String token : tokens(text)) {
+            addToken(vector, token);
+        }
+
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < DIMENSIONS; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    /**
+     * Основы слов, стоящих после «не», «ни», «нет», «без»; отрицание в конце текста учитывается само по себе.
+     */
+    static Set<String> negated(String text) {
+        List<String> tokens = tokens(text);
+        Set<String> negated = new HashSet<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            if (NEGATIONS.contains(tokens.get(i))) {
+                negated.add(i + 1 < tokens.size() ? stem(tokens.get(i + 1)) : tokens.get(i));
+            }
+        }
+        return negated;
+    }
+
+    private static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        String normalized = text == null ? "" : text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+
+        for (int i = 0; i <= normalized.length(); i++) {
+            char c = i < normalized.length() ? normalized.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token.append(c);
+            } else if (!token.isEmpty()) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        return tokens;
+    }
+
+    // Грубый стемминг: окончания русских слов отбрасываются обрезкой
+    private static String stem(String token) {
+        return token.substring(0, Math.min(token.length(), STEM_LENGTH));
+    }
+
+    private static void addToken(float[] vector, String token) {
+        if (token.length() < MIN_TOKEN_LENGTH) {
+            return;
+        }
+        String word = " " + stem(token) + " ";
+        for (int i = 0; i + 3 <= word.length(); i++) {
+            vector[Math.floorMod(word.substring(i, i + 3).hashCode(), DIMENSIONS)] += 1;
+        }
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < DIMENSIONS; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static final class Group {
+        private final Deque<Entry> entries = new ArrayDeque<>();
+    }
+
+    private record Entry(String description, float[] vector, Set<String> negated, List<String> categories,
+                         long createdAt) {
+    }
+
+}
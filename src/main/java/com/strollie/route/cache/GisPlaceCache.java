@@ -0,0 +1,421 @@
+package com.strollie.route.cache;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import com.strollie.route.config.ApiKeysConfig;
+import com.strollie.route.model.dto.PlaceDto;
+import com.strollie.route.model.schedule.WeeklySchedule;
+import com.strollie.route.util.GeoHash;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Кэш результатов 2GIS /3.0/items по ключу (запрос, geohash-тайл, корзина радиуса).
+ * <p>
+ * Запрос к 2GIS делается из центра тайла с радиусом, покрывающим корзину из любой точки тайла,
+ * поэтому соседние стартовые точки попадают в одну запись; точный радиус отсекается локально.
+ * Страница 2GIS ограничена, поэтому тайл отвечает за круг запроса, только если в круге нашлось
+ * не меньше {@code limit} мест или страница была неполной (других мест в тайле нет); иначе
+ * вызывающий идёт в 2GIS с точной точкой, и этот ответ тоже сохраняется в тайле для повторов.
+ * Так результат совпадает с запросом без кэша. Содержимое периодически сохраняется на диск
+ * и поднимается при старте.
+ */
+@Slf4j
+@Component
+public class GisPlaceCache {
+
+    private static final TypeReference<List<SnapshotEntry>> SNAPSHOT_TYPE = new TypeReference<>() {
+    };
+
+    // Запас на округление приближённых расстояний у границы круга
+    private static final double TOLERANCE_METERS = 1;
+
+    private final ApiKeysConfig.PlaceCache settings;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, Tile> tiles;
+    // Попадания считаются по ответу get, а не по наличию тайла: тайл может не покрывать круг
+    private final StatsCounter stats = new ConcurrentStatsCounter();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    public GisPlaceCache(ApiKeysConfig config, ObjectMapper objectMapper) {
+        this.settings = config.getGis().getPlaceCache();
+        this.objectMapper = objectMapper;
+        this.tiles = Caffeine.newBuilder()
+                .maximumSize(settings.getMaxEntries())
+                // Срок жизни считается от последнего запроса к 2GIS, а не от загрузки снимка
+                .expireAfter(new Expiry<String, Tile>() {
+                    @Override
+                    public long expireAfterCreate(String key, Tile tile, long currentTime) {
+                        long age = Duration.ofMillis(System.currentTimeMillis() - tile.fetchedAt()).toNanos();
+                        return Math.max(0, ttl().toNanos() - age);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Tile tile, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, tile, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Tile tile, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats(() -> stats)
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    /**
+     * Места для круга {@code lat, lon, radiusMeters}: из тайла, если он за круг отвечает, иначе через
+     * {@code fetcher}. На холодный тайл — один запрос из его центра; точный запрос — только если в
+     * полной странице тайла мест рядом с точкой меньше {@code limit}.
+     *
+     * @param pageSize размер страницы, которую {@code fetcher} запрашивает у 2GIS
+     */
+    public Mono<List<PlaceDto>> getOrFetch(String query, double lat, double lon, int radiusMeters, int limit,
+                                           int pageSize, LocalDateTime now, Fetcher fetcher) {
+        Area area = area(query, lat, lon, radiusMeters);
+        return Mono.defer(() -> {
+            List<PlaceDto> cached = get(area, lat, lon, radiusMeters, limit, now);
+            if (cached != null) {
+                log.info(">>> GIS PLACE CACHE: '{}' served from tile ({} places in radius)", query, cached.size());
+                return Mono.just(cached);
+            }
+
+            Mono<List<PlaceDto>> exact = Mono.defer(() -> fetcher.fetch(lat, lon, radiusMeters, pageSize))
+                    .map(places -> {
+                        putExact(area, lat, lon, radiusMeters, places, pageSize);
+                        return select(places, lat, lon, radiusMeters, limit, now);
+                    });
+            if (hasTilePage(area)) {
+                // Тайл свежий, но в его странице мало мест рядом с этой точкой
+                return exact;
+            }
+            // В тайл кладём полную страницу: запросы с разными лимитами и точками тайла делят одну запись
+            return fetcher.fetch(area.lat(), area.lon(), area.radiusMeters(), pageSize)
+                    .flatMap(places -> {
+                        put(area, places, pageSize);
+                        // Круг тайла покрывает точку по построению, остаётся то же условие, что и в get
+                        List<PlaceDto> selected = select(places, lat, lon, radiusMeters, limit, now);
+                        return selected.size() >= limit || places.size() < pageSize
+                                ? Mono.just(selected)
+                                : exact;
+                    });
+        });
+    }
+
+    /**
+     * Область запроса для точки: тайл, его центр и радиус, с которым нужно идти в 2GIS.
+     */
+    public Area area(String query, double lat, double lon, int radiusMeters) {
+        int bucketSize = Math.max(1, settings.getRadiusBucketMeters());
+        int bucket = (int) Math.ceil((double) radiusMeters / bucketSize) * bucketSize;
+        String tile = GeoHash.encode(lat, lon, settings.getTilePrecision());
+        double[] center = GeoHash.center(tile);
+        int queryRadius = (int) Math.ceil(bucket + GeoHash.halfDiagonalMeters(settings.getTilePrecision(), center[0]));
+        String key = query.trim().toLowerCase(Locale.ROOT) + "|" + tile + "|" + bucket;
+        return new Area(key, center[0], center[1], queryRadius);
+    }
+
+    /**
+     * Места для точного круга запроса или null, если тайл за этот круг ответить не может: ни страница
+     * тайла, ни сохранённые точные ответы не содержат круг или в круге меньше {@code limit} мест при
+     * полной странице 2GIS (более подходящие места могли не попасть в страницу).
+     */
+    public List<PlaceDto> get(Area area, double lat, double lon, int radiusMeters, int limit, LocalDateTime now) {
+        // asMap().get не трогает статистику — попадание или промах решается ниже
+        Tile tile = tiles.asMap().get(area.key());
+        if (tile != null) {
+            long freshAfter = System.currentTimeMillis() - ttl().toMillis();
+            for (Circle circle : tile.circles()) {
+                if (circle.fetchedAt() < freshAfter || !circle.covers(lat, lon, radiusMeters)) {
+                    continue;
+                }
+                List<PlaceDto> selected = select(circle.places(), lat, lon, radiusMeters, limit, now);
+                if (selected.size() >= limit || circle.complete()) {
+                    stats.recordHits(1);
+                    return selected;
+                }
+            }
+        }
+        stats.recordMisses(1);
+        return null;
+    }
+
+    /**
+     * Есть ли свежая страница из центра тайла (без учёта статистики обращений).
+     */
+    public boolean hasTilePage(Area area) {
+        Tile tile = tiles.asMap().get(area.key());
+        return tile != null && tile.page() != null
+                && tile.page().fetchedAt() >= System.currentTimeMillis() - ttl().toMillis();
+    }
+
+    /**
+     * Сохраняет страницу, запрошенную из центра тайла с кругом области.
+     *
+     * @param pageSize размер запрошенной страницы: если мест пришло меньше, в тайле других нет
+     */
+    public void put(Area area, List<PlaceDto> places, int pageSize) {
+        Circle page = new Circle(List.copyOf(places), System.currentTimeMillis(),
+                area.lat(), area.lon(), area.radiusMeters(), places.size() < pageSize);
+        tiles.asMap().compute(area.key(), (key, tile) -> new Tile(page, tile != null ? tile.exact() : List.of()));
+        dirty.set(true);
+    }
+
+    /**
+     * Сохраняет точный ответ для точки, за которую страница тайла ответить не смогла. В тайле остаются
+     * не больше {@code maxCirclesPerTile} последних таких ответов; ответ на тот же круг заменяется.
+     */
+    public void putExact(Area area, double lat, double lon, int radiusMeters, List<PlaceDto> places, int pageSize) {
+        Circle added = new Circle(List.copyOf(places), System.currentTimeMillis(),
+                lat, lon, radiusMeters, places.size() < pageSize);
+        int maxCircles = Math.max(1, settings.getMaxCirclesPerTile());
+        tiles.asMap().compute(area.key(), (key, tile) -> {
+            List<Circle> exact = new ArrayList<>(maxCircles);
+            exact.add(added);
+            if (tile != null) {
+                for (Circle circle : tile.exact()) {
+                    if (exact.size() >= maxCircles) {
+                        break;
+                    }
+                    if (!circle.sameCircle(added)) {
+                        exact.add(circle);
+                    }
+                }
+            }
+            return new Tile(tile != null ? tile.page() : null, List.copyOf(exact));
+        });
+        dirty.set(true);
+    }
+
+    /**
+     * Места тайла в пределах точного радиуса от {@code lat, lon}. Возвращаются копии: записи кэша
+     * общие для запросов, а openNow пересчитывается на {@code now} — местное время города.
+     */
+    public static List<PlaceDto> select(List<PlaceDto> places, double lat, double lon, int radiusMeters, int limit,
+                                        LocalDateTime now) {
+        List<PlaceDto> result = new ArrayList<>(Math.min(limit, places.size()));
+        for (PlaceDto place : places) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (GeoHash.distanceMeters(lat, lon, place.getLat(), place.getLon()) > radiusMeters + TOLERANCE_METERS) {
+                continue;
+            }
+            WeeklySchedule schedule = place.getSchedule();
+            result.add(place.toBuilder()
+                    .openNow(schedule != null ? schedule.isOpenAt(now) : place.isOpenNow())
+                    .build());
+        }
+        return result;
+    }
+
+    public CacheStats getStats() {
+        return stats.snapshot();
+    }
+
+    public long size() {
+        return tiles.estimatedSize();
+    }
+
+    @PostConstruct
+    public void load() {
+        Path path = snapshotPath();
+        if (path == null || !Files.isRegularFile(path)) {
+            return;
+        }
+
+        try {
+            List<SnapshotEntry> entries = objectMapper.readValue(path.toFile(), SNAPSHOT_TYPE);
+            long expiredBefore = System.currentTimeMillis() - ttl().toMillis();
+            int loaded = 0;
+            for (SnapshotEntry entry : entries) {
+                // Снимки прежнего формата (без страницы тайла) просто перезапрашиваются
+                if (entry.page() == null) {
+                    continue;
+                }
+                Circle page = restore(entry.page());
+                List<Circle> exact = new ArrayList<>();
+                if (entry.exact() != null) {
+                    for (SnapshotCircle snapshotCircle : entry.exact()) {
+                        if (snapshotCircle.fetchedAt() >= expiredBefore) {
+                            exact.add(restore(snapshotCircle));
+                        }
+                    }
+                }
+                if (page.fetchedAt() < expiredBefore && exact.isEmpty()) {
+                    continue;
+                }
+                tiles.put(entry.key(), new Tile(page.fetchedAt() >= expiredBefore ? page : null, List.copyOf(exact)));
+                loaded++;
+            }
+            log.info(">>> GIS PLACE CACHE: loaded {} of {} tiles from {}", loaded, entries.size(), path);
+        } catch (IOException | IllegalArgumentException e) {
+            // Битый снимок не должен мешать старту — просто начинаем с пустого кэша
+            log.warn(">>> GIS PLACE CACHE: failed to load snapshot {}: {}", path, e.getMessage());
+        }
+    }
+
+    @Scheduled(initialDelayString = "${api.gis.place-cache.snapshot-interval-millis:300000}",
+            fixedDelayString = "${api.gis.place-cache.snapshot-interval-millis:300000}")
+    public void snapshot() {
+        if (dirty.getAndSet(false)) {
+            save();
+        }
+    }
+
+    @PreDestroy
+    public void save() {
+        Path path = snapshotPath();
+        if (path == null) {
+            return;
+        }
+
+        List<SnapshotEntry> entries = new ArrayList<>();
+        for (Map.Entry<String, Tile> entry : tiles.asMap().entrySet()) {
+            Tile tile = entry.getValue();
+            // Без страницы тайла запись при загрузке не нужна — следующий запрос всё равно пойдёт в 2GIS
+            if (tile.page() == null) {
+                continue;
+            }
+            entries.add(new SnapshotEntry(entry.getKey(), toSnapshot(tile.page()),
+                    tile.exact().stream().map(GisPlaceCache::toSnapshot).toList()));
+        }
+
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            // Пишем во временный файл и подменяем, чтобы не оставить полузаписанный снимок
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            objectMapper.writeValue(tmp.toFile(), entries);
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info(">>> GIS PLACE CACHE: saved {} tiles to {}", entries.size(), path);
+        } catch (IOException e) {
+            dirty.set(true);
+            log.warn(">>> GIS PLACE CACHE: failed to save snapshot {}: {}", path, e.getMessage());
+        }
+    }
+
+    private Path snapshotPath() {
+        String path = settings.getSnapshotPath();
+        return settings.isEnabled() && path != null && !path.isBlank() ? Path.of(path) : null;
+    }
+
+    private Duration ttl() {
+        return Duration.ofMinutes(settings.getTtlMinutes());
+    }
+
+    private static Circle restore(SnapshotCircle snapshotCircle) {
+        List<PlaceDto> places = new ArrayList<>(snapshotCircle.places().size());
+        for (SnapshotPlace snapshotPlace : snapshotCircle.places()) {
+            PlaceDto place = snapshotPlace.place();
+            if (snapshotPlace.schedule() != null) {
+                place.setSchedule(WeeklySchedule.ofIntervals(snapshotPlace.schedule()));
+            }
+            places.add(place);
+        }
+        return new Circle(List.copyOf(places), snapshotCircle.fetchedAt(), snapshotCircle.lat(),
+                snapshotCircle.lon(), snapshotCircle.radiusMeters(), snapshotCircle.complete());
+    }
+
+    private static SnapshotCircle toSnapshot(Circle circle) {
+        return new SnapshotCircle(circle.fetchedAt(), circle.lat(), circle.lon(), circle.radiusMeters(),
+                circle.complete(), circle.places().stream()
+                .map(p -> new SnapshotPlace(p, p.getSchedule() != null ? p.getSchedule().intervals() : null))
+                .toList());
+    }
+
+    /**
+     * Запрос к 2GIS с кругом и размером страницы.
+     */
+    @FunctionalInterface
+    public interface Fetcher {
+        Mono<List<PlaceDto>> fetch(double lat, double lon, int radiusMeters, int pageSize);
+    }
+
+    /**
+     * Ключ тайла, его центр и радиус, покрывающий корзину из любой точки тайла.
+     */
+    public record Area(String key, double lat, double lon, int radiusMeters) {
+    }
+
+    /**
+     * Страница из центра тайла (может отсутствовать, если устарела) и точные ответы, от свежего к старому.
+     */
+    private record Tile(Circle page, List<Circle> exact) {
+
+        List<Circle> circles() {
+            List<Circle> circles = new ArrayList<>(exact.size() + 1);
+            if (page != null) {
+                circles.add(page);
+            }
+            circles.addAll(exact);
+            return circles;
+        }
+
+        long fetchedAt() {
+            long fetchedAt = page != null ? page.fetchedAt() : 0;
+            for (Circle circle : exact) {
+                fetchedAt = Math.max(fetchedAt, circle.fetchedAt());
+            }
+            return fetchedAt;
+        }
+    }
+
+    /**
+     * Страница 2GIS на круг ({@code lat, lon, radiusMeters});
+     * {@code complete} — страница пришла неполной, других мест в круге нет.
+     */
+    private record Circle(List<PlaceDto> places, long fetchedAt, double lat, double lon, int radiusMeters,
+                          boolean complete) {
+
+        boolean covers(double pointLat, double pointLon, int pointRadiusMeters) {
+            return GeoHash.distanceMeters(lat, lon, pointLat, pointLon) + pointRadiusMeters
+                    <= radiusMeters + TOLERANCE_METERS;
+        }
+
+        boolean sameCircle(Circle other) {
+            return lat == other.lat && lon == other.lon && radiusMeters == other.radiusMeters;
+        }
+    }
+
+    // schedule помечен @JsonIgnore в PlaceDto, поэтому интервалы храним рядом
+    record SnapshotPlace(PlaceDto place, int[] schedule) {
+    }
+
+    record SnapshotCircle(long fetchedAt, double lat, double lon, int radiusMeters, boolean complete,
+                          List<SnapshotPlace> places) {
+    }
+
+    record SnapshotEntry(String key, SnapshotCircle page, List<SnapshotCircle> exact) {
+    }
+
+}
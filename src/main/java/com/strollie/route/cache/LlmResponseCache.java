@@ -0,0 +1,136 @@
+package com.strollie.route.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.strollie.route.config.ApiKeysConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * Кэш ответов LLM (содержимое structured output) по хэшу модели, схемы и промптов.
+ * В промпте фильтрации кандидаты идут таблицей с номерами 1..N вместо id, но в строках есть
+ * название, категория и рейтинг места, так что одна запись соответствует тому же набору мест
+ * в том же порядке и тому же запросу пользователя, и номера из ответа указывают на те же места.
+ */
+@Slf4j
+@Component
+public class LlmResponseCache {
+
+    private static final String BYPASS_KEY = LlmResponseCache.class.getName() + ".bypass";
+
+    private final boolean enabled;
+    private final Cache<String, String> responses;
+
+    public LlmResponseCache(ApiKeysConfig config) {
+        ApiKeysConfig.ResponseCache settings = config.getLlm().getCache();
+        this.enabled = settings.isEnabled();
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(settings.getMaxSize())
+                .expireAfterWrite(Duration.ofMinutes(settings.getTtlMinutes()))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Отключает кэш для всех LLM-вызовов внутри {@code mono} (запрос с Cache-Control: no-cache).
+     */
+    public static <T> Mono<T> bypass(Mono<T> mono) {
+        return mono.contextWrite(ctx -> ctx.put(BYPASS_KEY, true));
+    }
+
+    public static <T> Flux<T> bypass(Flux<T> flux) {
+        return flux.contextWrite(ctx -> ctx.put(BYPASS_KEY, true));
+    }
+
+    public static boolean isBypassed(ContextView context) {
+        return context.getOrDefault(BYPASS_KEY, false);
+    }
+
+    public Mono<String> getOrCall(String model, String schemaName, String systemPrompt, String userPrompt,
+                                  Supplier<Mono<String>> call) {
+        if (!enabled) {
+            return call.get();
+        }
+
+        return Mono.deferContextual(ctx -> {
+            if (isBypassed(ctx)) {
+                return call.get();
+            }
+
+            String key = key(model, schemaName, systemPrompt, userPrompt);
+            String cached = responses.getIfPresent(key);
+            if (cached != null) {
+                log.info(">>> LLM CACHE: hit for '{}'", schemaName);
+                return Mono.just(cached);
+            }
+
+            return call.get().doOnNext(content -> responses.put(key, content));
+        });
+    }
+
+    /**
+     * Потоковый вариант: при попадании отдаёт сохранённый текст одним фрагментом, иначе
+     * транслирует фрагменты вызова и кладёт склеенный текст в кэш, если поток завершился успешно.
+     */
+    public Flux<String> getOrStream(String model, String schemaName, String systemPrompt, String userPrompt,
+                                    Supplier<Flux<String>> call) {
+        if (!enabled) {
+            return Flux.defer(call);
+        }
+
+        return Flux.deferContextual(ctx -> {
+            if (isBypassed(ctx)) {
+                return call.get();
+            }
+
+            String key = key(model, schemaName, systemPrompt, userPrompt);
+            String cached = responses.getIfPresent(key);
+            if (cached != null) {
+                log.info(">>> LLM CACHE: hit for '{}'", schemaName);
+                return Flux.just(cached);
+            }
+
+            StringBuilder text = new StringBuilder();
+            return call.get()
+                    .doOnNext(text::append)
+                    .doOnComplete(() -> {
+                        if (!text.isEmpty()) {
+                            responses.put(key, text.toString());
+                        }
+                    });
+        });
+    }
+
+    public CacheStats getStats() {
+        return responses.stats();
+    }
+
+    public long size() {
+        return responses.estimatedSize();
+    }
+
+    private String key(String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.strollie.route.cache;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Источник идентификаторов 2GIS для {@link CityRegionCache}: вызывается при промахе
+ * и при фоновом обновлении записей. Пустой Mono — идентификатор не найден.
+ */
+public interface RegionLookup {
+
+    Mono<String> findRegionId(String city);
+
+    Mono<String> findRubricId(String regionId, String category);
+
+}
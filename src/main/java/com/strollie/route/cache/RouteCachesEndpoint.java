@@ -0,0 +1,63 @@
+package com.strollie.route.cache;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Статистика кэшей сервиса: {@code GET /actuator/routecaches}.
+ */
+@Component
+@Endpoint(id = "routecaches")
+@RequiredArgsConstructor
+public class RouteCachesEndpoint {
+
+    private final CityRegionCache cityRegionCache;
+    private final GisPlaceCache gisPlaceCache;
+    private final LlmResponseCache llmResponseCache;
+    private final EnrichmentSemanticCache enrichmentSemanticCache;
+
+    @ReadOperation
+    public Map<String, Object> caches() {
+        Map<String, Object> result = new LinkedHashMap<>();
+
+        CityRegionCache.RegionCacheStats regions = cityRegionCache.getStats();
+        Map<String, Object> regionStats = new LinkedHashMap<>();
+        regionStats.put("cityEntries", regions.cityEntries());
+        regionStats.put("rubricEntries", regions.rubricEntries());
+        regionStats.put("hits", regions.hits());
+        regionStats.put("misses", regions.misses());
+        regionStats.put("evictions", regions.evictions());
+        regionStats.put("hitRate", regions.hitRate());
+        result.put("regions", regionStats);
+
+        result.put("gisPlaces", describe(gisPlaceCache.size(), gisPlaceCache.getStats()));
+        result.put("llmResponses", describe(llmResponseCache.size(), llmResponseCache.getStats()));
+
+        long hits = enrichmentSemanticCache.getHits();
+        long misses = enrichmentSemanticCache.getMisses();
+        Map<String, Object> semanticStats = new LinkedHashMap<>();
+        semanticStats.put("hits", hits);
+        semanticStats.put("misses", misses);
+        semanticStats.put("hitRate", hits + misses == 0 ? 0 : (double) hits / (hits + misses));
+        result.put("enrichmentSemantic", semanticStats);
+
+        return result;
+    }
+
+    private Map<String, Object> describe(long size, CacheStats stats) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("entries", size);
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("evictions", stats.evictionCount());
+        result.put("hitRate", stats.hitRate());
+        return result;
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.strollie.route.client;
+
+import com.strollie.route.model.dto.PlaceDto;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Кандидаты для промпта LLM в виде таблицы с разделителем «|»: строка заголовка и по строке
+ * на место. Вместо длинных id 2GIS — короткие номера, поля обрезаны.
+ * <p>
+ * При заданном бюджете токенов сначала отбрасываются наименее ценные места (без рейтинга,
+ * с низким рейтингом и малым числом отзывов); порядок оставшихся строк сохраняется.
+ *
+ * @param text     таблица для промпта
+ * @param places   место по номеру из таблицы
+ * @param dropped  сколько кандидатов не поместилось в бюджет
+ */
+record CandidateTable(String text, Map<String, PlaceDto> places, int dropped) {
+
+    static final String HEADER = "#|name|category|rating|about";
+
+    private static final int NAME_MAX = 60;
+    private static final int CATEGORY_MAX = 40;
+    private static final int ABOUT_MAX = 100;
+    // Грубая оценка для смеси кириллицы и латиницы; точный токенизатор модели не нужен
+    private static final double CHARS_PER_TOKEN = 3.0;
+
+    private static final Comparator<PlaceDto> BY_VALUE = Comparator
+            .comparing(PlaceDto::getRating, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(PlaceDto::getReviewCount, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    /**
+     * @param tokenBudget оценка токенов на всю таблицу; 0 — без ограничения
+     */
+    static CandidateTable encode(List<PlaceDto> candidates, int tokenBudget) {
+        List<String> rows = candidates.stream().map(CandidateTable::row).toList();
+
+        Set<Integer> dropped = new HashSet<>();
+        if (tokenBudget > 0) {
+            // Номер строки — не больше нескольких символов, в оценке им пренебрегаем
+            int tokens = estimateTokens(HEADER) + rows.stream().mapToInt(CandidateTable::estimateTokens).sum();
+            List<Integer> byValue = IntStream.range(0, candidates.size()).boxed()
+                    .sorted(Comparator.comparing(candidates::get, BY_VALUE))
+                    .toList();
+            for (int i = 0; i < byValue.size() - 1 && tokens > tokenBudget; i++) {
+                int index = byValue.get(i);
+                dropped.add(index);
+                tokens -= estimateTokens(rows.get(index));
+            }
+        }
+
+        StringBuilder text = new StringBuilder(HEADER);
+        Map<String, PlaceDto> places = new LinkedHashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (dropped.contains(i)) {
+                continue;
+            }
+            String alias = String.valueOf(places.size() + 1);
+            places.put(alias, candidates.get(i));
+            text.append('\n').append(alias).append('|').append(rows.get(i));
+        }
+        return new CandidateTable(text.toString(), places, dropped.size());
+    }
+
+    static int estimateTokens(String text) {
+        return estimateTokens(text.length());
+    }
+
+    /**
+     * Оценка прежнего JSON-представления кандидатов — база для подсчета экономии в логе.
+     * Длина складывается из полей без сериализации; экранирование не учитывается.
+     */
+    static int estimateJsonTokens(List<PlaceDto> candidates) {
+        // [] и на каждого кандидата {"id":"","name":"","category":"","rating":""} с запятой-разделителем
+        int length = 1;
+        for (PlaceDto place : candidates) {
+            length += 46 + length(place.getId()) + length(place.getName()) + length(place.getCategory())
+                    + length(place.getRating());
+            if (place.getDescription() != null) {
+                // ,"description":"" — описание в JSON обрезалось до 200 символов
+                length += 17 + Math.min(place.getDescription().length(), 200);
+            }
+        }
+        return estimateTokens(length);
+    }
+
+    private static int estimateTokens(int length) {
+        return (int) Math.ceil(length / CHARS_PER_TOKEN);
+    }
+
+    private static int length(Object value) {
+        return String.valueOf(value).length();
+    }
+
+    /**
+     * Выбранные моделью места по номерам из таблицы; неизвестные номера пропускаются.
+     */
+    List<PlaceDto> resolve(List<String> aliases) {
+        List<PlaceDto> result = new ArrayList<>();
+        for (String alias : aliases) {
+            PlaceDto place = alias != null ? places.get(alias.trim()) : null;
+            if (place != null && !result.contains(place)) {
+                result.add(place);
+            }
+        }
+        return result;
+    }
+
+    int estimatedTokens() {
+        return estimateTokens(text);
+    }
+
+    private static String row(PlaceDto place) {
+        String rating = place.getRating() != null ? String.format(Locale.ROOT, "%.1f", place.getRating()) : "-";
+        return cell(place.getName(), NAME_MAX) + '|' + cell(place.getCategory(), CATEGORY_MAX) + '|'
+                + rating + '|' + cell(place.getDescription(), ABOUT_MAX);
+    }
+
+    private static String cell(String value, int maxLength) {
+        if (value == null || value.isBlank()) {
+            return "-";
+        }
+        String clean = value.replace('|', '/').replaceAll("\\s+", " ").trim();
+        return clean.length() <= maxLength ? clean : clean.substring(0, maxLength - 1).trim() + "…";
+    }
+
+}
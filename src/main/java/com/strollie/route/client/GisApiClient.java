@@ -1,20 +1,26 @@
 package com.strollie.route.client;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.strollie.route.cache.CityRegionCache;
+import com.strollie.route.cache.GisPlaceCache;
 import com.strollie.route.config.ApiKeysConfig;
 import com.strollie.route.model.dto.PlaceDto;
+import com.strollie.route.model.external.gis.GisItemsResponse;
+import com.strollie.route.model.schedule.WeeklySchedule;
+import com.strollie.route.service.CityClock;
+import com.strollie.route.util.LatencyTracker;
+import com.strollie.route.util.SingleFlight;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.time.format.TextStyle;
 import java.util.*;
 
 @Slf4j
@@ -35,13 +41,22 @@ public class GisApiClient {
             "items.external_content"
     );
 
-    private final WebClient webClient;
+    private final WebClient gisWebClient;
+    private final LatencyTracker gisLatencyTracker;
     private final ApiKeysConfig config;
     private final CityRegionCache cityCache;
-    private final ObjectMapper mapper = new ObjectMapper();
+    private final GisPlaceCache placeCache;
+    private final CityClock cityClock;
+    // Одинаковые запросы к 2GIS, пришедшие одновременно, выполняются один раз
+    private final SingleFlight<String, List<PlaceDto>> inFlightSearches = new SingleFlight<>();
 
     public List<PlaceDto> searchPlaces(String city, List<String> categoryNames,
                                        double lat, double lon, int radiusMeters, int totalPageSize) {
+        return blockForList(searchPlacesReactive(city, categoryNames, lat, lon, radiusMeters, totalPageSize));
+    }
+
+    public Mono<List<PlaceDto>> searchPlacesReactive(String city, List<String> categoryNames,
+                                                     double lat, double lon, int radiusMeters, int totalPageSize) {
 
         log.info(">>> SEARCH: City='{}', Categories={}, Radius={}, Limit={}",
                 city, categoryNames, radiusMeters, totalPageSize);
@@ -52,223 +67,302 @@ public class GisApiClient {
         if (categoryNames != null && categoryNames.size() > 1) {
             log.info(">>> Using BALANCED search for {} categories to ensure diversity",
                     categoryNames.size());
-            return searchPlacesBalanced(city, categoryNames, lat, lon, radiusMeters, totalPageSize);
+            return searchPlacesBalancedReactive(city, categoryNames, lat, lon, radiusMeters, totalPageSize);
         }
 
-        // Одна категория или без категорий — простой поиск
-        try {
-            String textQuery = buildTextQuery(city, categoryNames);
-            int actualLimit = Math.min(totalPageSize, MAX_PAGE_SIZE);
-
-            String itemsUrl = UriComponentsBuilder.newInstance()
-                    .scheme("https")
-                    .host(extractHost(config.getGis().getBaseUrl()))
-                    .path(ITEMS_ENDPOINT)
-                    .queryParam("q", textQuery)
-                    .queryParam("point", lon + "," + lat)
-                    .queryParam("radius", radiusMeters)
-                    .queryParam("sort", "rating")
-                    .queryParam("sort_point", lon + "," + lat)
-                    .queryParam("type", "branch")
-                    .queryParam("page_size", actualLimit)
-                    .queryParam("fields", EXTENDED_FIELDS)
-                    .queryParam("key", apiKey())
-                    .build()
-                    .toUriString();
-
-            log.info(">>> REQUEST: {}", sanitizeUrl(itemsUrl));
-
-            String responseBody = webClient.get()
-                    .uri(itemsUrl)
-                    .accept(MediaType.APPLICATION_JSON)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            log.info(">>> RAW RESPONSE (first 1000 chars): {}",
-                    responseBody != null ? responseBody.substring(0, Math.min(1000, responseBody.length())) : "null");
-
-            return parseItemsResponse(responseBody);
-
-        } catch (Exception e) {
-            log.error("Error during search. City: {}, Error: {}", city, e.getMessage(), e);
-            return Collections.emptyList();
+        if (categoryNames != null && categoryNames.size() == 1) {
+            return searchSingleCategory(city, categoryNames.get(0), lat, lon, radiusMeters, totalPageSize);
         }
+
+        // Без категорий — простой поиск по городу
+        return Mono.defer(() -> {
+                    String textQuery = buildTextQuery(city, categoryNames);
+                    int actualLimit = Math.min(totalPageSize, MAX_PAGE_SIZE);
+
+                    String itemsUrl = UriComponentsBuilder.newInstance()
+                            .scheme("https")
+                            .host(extractHost(config.getGis().getBaseUrl()))
+                            .path(ITEMS_ENDPOINT)
+                            .queryParam("q", textQuery)
+                            .queryParam("point", lon + "," + lat)
+                            .queryParam("radius", radiusMeters)
+                            .queryParam("sort", "rating")
+                            .queryParam("sort_point", lon + "," + lat)
+                            .queryParam("type", "branch")
+                            .queryParam("page_size", actualLimit)
+                            .queryParam("fields", EXTENDED_FIELDS)
+                            .queryParam("key", apiKey())
+                            .build()
+                            .toUriString();
+
+                    log.info(">>> REQUEST: {}", sanitizeUrl(itemsUrl));
+                    return getItems(itemsUrl);
+                })
+                .map(response -> toPlaces(response, cityClock.now(city)))
+                .defaultIfEmpty(Collections.emptyList())
+                .onErrorResume(e -> {
+                    log.error("Error during search. City: {}, Error: {}", city, e.getMessage(), e);
+                    return Mono.just(Collections.emptyList());
+                });
     }
 
     public List<PlaceDto> searchPlacesBalanced(String city, List<String> categoryNames,
                                                double lat, double lon, int radiusMeters, int totalLimit) {
+        return blockForList(searchPlacesBalancedReactive(city, categoryNames, lat, lon, radiusMeters, totalLimit));
+    }
+
+    public Mono<List<PlaceDto>> searchPlacesBalancedReactive(String city, List<String> categoryNames,
+                                                             double lat, double lon, int radiusMeters, int totalLimit) {
 
         if (categoryNames == null || categoryNames.isEmpty()) {
-            return Collections.emptyList();
+            return Mono.just(Collections.emptyList());
         }
 
         // Распределяем лимит по категориям, но не больше MAX_PAGE_SIZE на категорию
-        int limitPerCategory = Math.min(MAX_PAGE_SIZE, Math.max(3, totalLimit / categoryNames.size()));
-        log.info(">>> Balanced search: {} categories, {} items per category",
-                categoryNames.size(), limitPerCategory);
+        int limitPerCategory = limitPerCategory(categoryNames.size(), totalLimit);
+        return searchEachCategoryReactive(city, categoryNames, lat, lon, radiusMeters, limitPerCategory)
+                .map(perCategory -> mergeBalanced(perCategory, limitPerCategory, totalLimit));
+    }
 
-        List<PlaceDto> allResults = new ArrayList<>();
+    public int limitPerCategory(int categoryCount, int totalLimit) {
+        return Math.min(MAX_PAGE_SIZE, Math.max(3, totalLimit / Math.max(1, categoryCount)));
+    }
 
-        for (String category : categoryNames) {
-            List<PlaceDto> categoryResults = searchSingleCategory(
-                    city, category, lat, lon, radiusMeters, limitPerCategory);
-            allResults.addAll(categoryResults);
+    /**
+     * Результаты по каждой категории отдельно, в порядке {@code categoryNames}. Нужен, когда часть
+     * категорий ищется заранее, а итоговый список собирается позже через {@link #mergeBalanced}.
+     */
+    public Mono<List<List<PlaceDto>>> searchEachCategoryReactive(String city, List<String> categoryNames,
+                                                                 double lat, double lon, int radiusMeters,
+                                                                 int limitPerCategory) {
+        if (categoryNames == null || categoryNames.isEmpty()) {
+            return Mono.just(Collections.emptyList());
         }
 
-        return allResults.stream()
+        int concurrency = Math.max(1, config.getGis().getBalancedConcurrency());
+        log.info(">>> Balanced search: {} categories, {} items per category, concurrency {}",
+                categoryNames.size(), limitPerCategory, concurrency);
+
+        // Категории запрашиваются параллельно, но flatMapSequential сохраняет их исходный порядок,
+        // поэтому итоговый список (и обрезка по totalLimit) не зависит от того, кто ответил первым.
+        return Flux.fromIterable(categoryNames)
+                .flatMapSequential(category -> searchSingleCategory(
+                        city, category, lat, lon, radiusMeters, limitPerCategory), concurrency)
+                .collectList();
+    }
+
+    /**
+     * Склеивает результаты категорий в порядке категорий. Список каждой категории отсортирован
+     * по рейтингу, поэтому обрезка до {@code limitPerCategory} равносильна запросу с меньшей страницей.
+     */
+    public static List<PlaceDto> mergeBalanced(List<List<PlaceDto>> perCategory, int limitPerCategory, int totalLimit) {
+        return perCategory.stream()
+                .flatMap(places -> places.stream().limit(limitPerCategory))
                 .filter(p -> p.getId() != null)
                 .distinct()
                 .limit(totalLimit)
                 .toList();
     }
 
-    private List<PlaceDto> searchSingleCategory(String city, String category,
-                                                double lat, double lon, int radiusMeters, int limit) {
-        try {
-            String textQuery = city + " " + category;
-            int actualLimit = Math.min(limit, MAX_PAGE_SIZE);
-
-            String itemsUrl = UriComponentsBuilder.newInstance()
-                    .scheme("https")
-                    .host(extractHost(config.getGis().getBaseUrl()))
-                    .path(ITEMS_ENDPOINT)
-                    .queryParam("q", textQuery)
-                    .queryParam("point", lon + "," + lat)
-                    .queryParam("radius", radiusMeters)
-                    .queryParam("sort", "rating")
-                    .queryParam("type", "branch")
-                    .queryParam("page_size", actualLimit)
-                    .queryParam("fields", EXTENDED_FIELDS)
-                    .queryParam("key", apiKey())
-                    .build()
-                    .toUriString();
-
-            log.info(">>> Category '{}' request: {}", category, sanitizeUrl(itemsUrl));
-
-            String responseBody = webClient.get()
-                    .uri(itemsUrl)
-                    .accept(MediaType.APPLICATION_JSON)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            log.info(">>> Category '{}' response (first 500 chars): {}", category,
-                    responseBody != null ? responseBody.substring(0, Math.min(500, responseBody.length())) : "null");
-
-            List<PlaceDto> results = parseItemsResponse(responseBody);
-            log.info(">>> Category '{}' found {} places", category, results.size());
-            return results;
-
-        } catch (Exception e) {
-            log.warn("Failed to search category '{}': {}", category, e.getMessage());
-            return Collections.emptyList();
-        }
+    private Mono<List<PlaceDto>> searchSingleCategory(String city, String category,
+                                                      double lat, double lon, int radiusMeters, int limit) {
+        ItemsQuery textQuery = ItemsQuery.text(city + " " + category);
+        int actualLimit = Math.min(limit, MAX_PAGE_SIZE);
+        // openNow — по местному времени города
+        LocalDateTime now = cityClock.now(city);
+
+        return resolveQuery(city, category, textQuery)
+                .flatMap(query -> searchItems(category, query, lat, lon, radiusMeters, actualLimit, now)
+                        // Рубрика может не совпасть с тем, как место размечено в 2GIS — тогда ищем по тексту
+                        .flatMap(results -> results.isEmpty() && query.rubricId() != null
+                                ? searchItems(category, textQuery, lat, lon, radiusMeters, actualLimit, now)
+                                : Mono.just(results)))
+                // Дедлайн на категорию целиком: поиск рубрики, запросы мест и текстовый fallback
+                .timeout(categoryTimeout())
+                .doOnNext(results -> log.info(">>> Category '{}' found {} places", category, results.size()))
+                .defaultIfEmpty(Collections.emptyList())
+                .onErrorResume(e -> {
+                    // Одна медленная или упавшая категория не должна ронять весь balanced search
+                    log.warn("Failed to search category '{}': {}", category, e.toString());
+                    return Mono.just(Collections.emptyList());
+                });
     }
 
-    private String buildTextQuery(String city, List<String> categories) {
-        if (categories == null || categories.isEmpty()) {
-            return city;
-        }
-        return city + " " + String.join(" ", categories);
+    private Duration categoryTimeout() {
+        int timeout = config.getGis().getCategoryTimeout();
+        return Duration.ofMillis(timeout > 0 ? timeout : Math.max(1000, config.getGis().getTimeout()));
     }
 
-    private List<PlaceDto> parseItemsResponse(String responseBody) {
-        if (responseBody == null || responseBody.isBlank()) {
-            log.warn(">>> PARSE: Response body is null or blank");
-            return Collections.emptyList();
-        }
-
-        try {
-            JsonNode root = mapper.readTree(responseBody);
-
-            JsonNode meta = root.path("meta");
-            int code = meta.path("code").asInt(0);
-            log.info(">>> PARSE: Response code={}", code);
+    /**
+     * Запрос по рубрике, если удалось вовремя определить её id (регион необязателен), иначе текстовый.
+     * Оба идентификатора кэшируются в {@link CityRegionCache}.
+     */
+    private Mono<ItemsQuery> resolveQuery(String city, String category, ItemsQuery fallback) {
+        return cityCache.regionId(city)
+                .onErrorResume(e -> Mono.empty())
+                .defaultIfEmpty("")
+                .flatMap(regionId -> cityCache.rubricId(regionId, category)
+                        .map(rubricId -> ItemsQuery.rubric(regionId.isEmpty() ? null : regionId, rubricId)))
+                .onErrorResume(e -> Mono.empty())
+                .defaultIfEmpty(fallback)
+                // Промах кэша — до двух запросов к каталогу подряд. Дольше половины дедлайна категории
+                // их не ждём: ищем по тексту, а загрузка в кэше не отменяется и пригодится следующему запросу
+                .timeout(categoryTimeout().dividedBy(2), Mono.just(fallback));
+    }
 
-            if (code != 200) {
-                JsonNode error = meta.path("error");
-                log.error(">>> PARSE: API error - type={}, message={}",
-                        error.path("type").asText(), error.path("message").asText());
-                return Collections.emptyList();
-            }
+    private Mono<List<PlaceDto>> searchItems(String category, ItemsQuery query,
+                                             double lat, double lon, int radiusMeters, int limit,
+                                             LocalDateTime now) {
+        if (!placeCache.isEnabled()) {
+            return fetchItems(category, query, lat, lon, radiusMeters, limit, now);
+        }
 
-            JsonNode result = root.path("result");
-            int total = result.path("total").asInt(0);
-            log.info(">>> PARSE: Total results from API = {}", total);
+        // Соседние старты делят страницу из центра тайла; точный запрос — только если в ней мало мест рядом
+        return placeCache.getOrFetch(query.cacheKey(), lat, lon, radiusMeters, limit, MAX_PAGE_SIZE, now,
+                (fetchLat, fetchLon, fetchRadius, pageSize) ->
+                        fetchItems(category, query, fetchLat, fetchLon, fetchRadius, pageSize, now));
+    }
 
-            JsonNode items = result.path("items");
+    private Mono<List<PlaceDto>> fetchItems(String category, ItemsQuery query,
+                                            double lat, double lon, int radiusMeters, int pageSize,
+                                            LocalDateTime now) {
+        // С кэшем тайлов точка — центр тайла, так что соседние старты дают один и тот же ключ
+        String key = query.cacheKey() + "|" + lat + "," + lon + "|" + radiusMeters + "|" + pageSize;
+        return inFlightSearches.execute(key, () -> requestItems(category, query, lat, lon, radiusMeters, pageSize, now));
+    }
 
-            if (items.isMissingNode() || !items.isArray()) {
-                log.warn(">>> PARSE: Items missing or not array");
-                return Collections.emptyList();
-            }
+    private Mono<List<PlaceDto>> requestItems(String category, ItemsQuery query,
+                                              double lat, double lon, int radiusMeters, int pageSize,
+                                              LocalDateTime now) {
+        return Mono.defer(() -> {
+                    UriComponentsBuilder builder = UriComponentsBuilder.newInstance()
+                            .scheme("https")
+                            .host(extractHost(config.getGis().getBaseUrl()))
+                            .path(ITEMS_ENDPOINT);
+                    if (query.rubricId() != null) {
+                        builder.queryParam("rubric_id", query.rubricId());
+                        if (query.regionId() != null) {
+                            builder.queryParam("region_id", query.regionId());
+                        }
+                    } else {
+                        builder.queryParam("q", query.text());
+                    }
 
-            log.info(">>> PARSE: Items array size = {}", items.size());
+                    String itemsUrl = builder
+                            .queryParam("point", lon + "," + lat)
+                            .queryParam("radius", radiusMeters)
+                            .queryParam("sort", "rating")
+                            .queryParam("type", "branch")
+                            .queryParam("page_size", pageSize)
+                            .queryParam("fields", EXTENDED_FIELDS)
+                            .queryParam("key", apiKey())
+                            .build()
+                            .toUriString();
+
+                    log.info(">>> Category '{}' request: {}", category, sanitizeUrl(itemsUrl));
+                    return getItems(itemsUrl);
+                })
+                .map(response -> toPlaces(response, now));
+    }
 
-            List<PlaceDto> places = new ArrayList<>();
-            LocalDateTime now = LocalDateTime.now();
+    /**
+     * GET к /3.0/items, каждая попытка — с таймаутом по наблюдаемому p99. Запрос идемпотентен,
+     * поэтому если ответа нет дольше p95, отправляется дублирующий и берётся первый успешный ответ.
+     */
+    Mono<GisItemsResponse> getItems(String itemsUrl) {
+        Mono<GisItemsResponse> call = gisLatencyTracker.track(gisWebClient.get()
+                .uri(itemsUrl)
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .bodyToMono(GisItemsResponse.class));
+
+        ApiKeysConfig.Hedging hedging = config.getGis().getHedging();
+        Duration hedgeDelay = hedging.isEnabled() ? gisLatencyTracker.hedgeDelay(hedging.getMinDelayMillis()) : null;
+        return hedgeDelay == null ? call : Mono.firstWithValue(call,
+                Mono.delay(hedgeDelay)
+                        .doOnNext(tick -> log.info(">>> GIS: no response after {} ms, sending hedged request",
+                                hedgeDelay.toMillis()))
+                        .then(call));
+    }
 
-            for (JsonNode item : items) {
-                PlaceDto place = mapToPlaceDto(item, now);
-                if (place != null) {
-                    places.add(place);
-                }
-            }
+    private String buildTextQuery(String city, List<String> categories) {
+        if (categories == null || categories.isEmpty()) {
+            return city;
+        }
+        return city + " " + String.join(" ", categories);
+    }
 
-            log.info(">>> Parsed {} places from response", places.size());
-            return places;
+    /**
+     * Ответ декодируется WebClient прямо из буферов в {@link GisItemsResponse}, без промежуточной
+     * строки и дерева JsonNode; здесь только перекладываем нужные поля в PlaceDto.
+     */
+    private List<PlaceDto> toPlaces(GisItemsResponse response, LocalDateTime now) {
+        GisItemsResponse.Meta meta = response.getMeta();
+        int code = meta != null && meta.getCode() != null ? meta.getCode() : 0;
+
+        if (code != 200) {
+            GisItemsResponse.Error error = meta != null ? meta.getError() : null;
+            log.warn(">>> PARSE: API code={}, type={}, message={}", code,
+                    error != null ? error.getType() : null, error != null ? error.getMessage() : null);
+            return Collections.emptyList();
+        }
 
-        } catch (Exception e) {
-            log.error("Failed to parse items response: {}", e.getMessage());
+        GisItemsResponse.Result result = response.getResult();
+        if (result == null || result.getItems() == null) {
+            log.warn(">>> PARSE: Items missing");
             return Collections.emptyList();
         }
+
+        List<PlaceDto> places = new ArrayList<>(result.getItems().size());
+        for (GisItemsResponse.Item item : result.getItems()) {
+            places.add(mapToPlaceDto(item, now));
+        }
+
+        log.debug(">>> Parsed {} places (total {})", places.size(), result.getTotal());
+        return places;
     }
 
-    private PlaceDto mapToPlaceDto(JsonNode item, LocalDateTime now) {
+    private PlaceDto mapToPlaceDto(GisItemsResponse.Item item, LocalDateTime now) {
         PlaceDto dto = new PlaceDto();
 
-        dto.setId(item.path("id").asText(null));
-        dto.setName(item.path("name").asText(null));
+        dto.setId(item.getId());
+        dto.setName(item.getName());
 
-        JsonNode point = item.path("point");
-        if (!point.isMissingNode()) {
-            dto.setLat(point.path("lat").asDouble());
-            dto.setLon(point.path("lon").asDouble());
+        if (item.getPoint() != null) {
+            dto.setLat(item.getPoint().getLat());
+            dto.setLon(item.getPoint().getLon());
         }
 
-        JsonNode rubrics = item.path("rubrics");
-        if (rubrics.isArray() && !rubrics.isEmpty()) {
-            dto.setCategory(rubrics.get(0).path("name").asText(null));
+        if (item.getRubrics() != null && !item.getRubrics().isEmpty()) {
+            dto.setCategory(item.getRubrics().get(0).getName());
         }
 
-        dto.setAddress(item.path("address_name").asText(null));
-        dto.setDescription(item.path("description").asText(null));
+        dto.setAddress(item.getAddressName());
+        dto.setDescription(item.getDescription());
 
-        JsonNode reviews = item.path("reviews");
-        if (!reviews.isMissingNode()) {
-            String ratingStr = reviews.path("rating").asText(null);
-            if (ratingStr != null && !ratingStr.isEmpty()) {
+        GisItemsResponse.Reviews reviews = item.getReviews();
+        if (reviews != null) {
+            if (reviews.getRating() != null && !reviews.getRating().isEmpty()) {
                 try {
-                    dto.setRating(Double.parseDouble(ratingStr));
+                    dto.setRating(Double.parseDouble(reviews.getRating()));
                 } catch (NumberFormatException ignored) {
                 }
             }
-            dto.setReviewCount(reviews.path("review_count").asInt(0));
+            dto.setReviewCount(parseCount(reviews.getReviewCount()));
         }
 
-        JsonNode schedule = item.path("schedule");
-        if (!schedule.isMissingNode()) {
+        GisItemsResponse.Schedule schedule = item.getSchedule();
+        if (schedule != null) {
+            WeeklySchedule weeklySchedule = parseSchedule(schedule);
+            dto.setSchedule(weeklySchedule);
             dto.setWorkingHours(formatSchedule(schedule));
-            dto.setOpenNow(checkIfOpen(schedule, now));
+            dto.setOpenNow(weeklySchedule.isOpenAt(now));
         }
 
-        JsonNode externalContent = item.path("external_content");
-        if (externalContent.isArray() && !externalContent.isEmpty()) {
-            for (JsonNode content : externalContent) {
-                String photoUrl = content.path("main_photo_url").asText(null);
-                if (photoUrl != null) {
-                    dto.setPhotoUrl(photoUrl);
+        if (item.getExternalContent() != null) {
+            for (GisItemsResponse.ExternalContent content : item.getExternalContent()) {
+                if (content.getMainPhotoUrl() != null) {
+                    dto.setPhotoUrl(content.getMainPhotoUrl());
                     break;
                 }
             }
@@ -277,27 +371,34 @@ public class GisApiClient {
         return dto;
     }
 
-    private String formatSchedule(JsonNode schedule) {
-        if (schedule.path("is_24x7").asBoolean(false)) {
+    private int parseCount(String value) {
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private String formatSchedule(GisItemsResponse.Schedule schedule) {
+        if (Boolean.TRUE.equals(schedule.getIs24x7())) {
             return "Круглосуточно";
         }
 
         StringBuilder sb = new StringBuilder();
-        String[] days = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
         String[] daysRu = {"Пн", "Вт", "Ср", "Чт", "Пт", "Сб", "Вс"};
 
-        for (int i = 0; i < days.length; i++) {
-            JsonNode daySchedule = schedule.path(days[i]);
-            if (!daySchedule.isMissingNode()) {
-                JsonNode workingHours = daySchedule.path("working_hours");
-                if (workingHours.isArray() && !workingHours.isEmpty()) {
-                    JsonNode hours = workingHours.get(0);
-                    String from = hours.path("from").asText("");
-                    String to = hours.path("to").asText("");
-                    if (!from.isEmpty() && !to.isEmpty()) {
-                        if (!sb.isEmpty()) sb.append(", ");
-                        sb.append(daysRu[i]).append(": ").append(from).append("-").append(to);
-                    }
+        for (DayOfWeek day : DayOfWeek.values()) {
+            GisItemsResponse.DaySchedule daySchedule = daySchedule(schedule, day);
+            if (daySchedule != null && daySchedule.getWorkingHours() != null && !daySchedule.getWorkingHours().isEmpty()) {
+                GisItemsResponse.WorkingHours hours = daySchedule.getWorkingHours().get(0);
+                String from = Objects.toString(hours.getFrom(), "");
+                String to = Objects.toString(hours.getTo(), "");
+                if (!from.isEmpty() && !to.isEmpty()) {
+                    if (!sb.isEmpty()) sb.append(", ");
+                    sb.append(daysRu[day.ordinal()]).append(": ").append(from).append("-").append(to);
                 }
             }
         }
@@ -305,43 +406,44 @@ public class GisApiClient {
         return sb.isEmpty() ? null : sb.toString();
     }
 
-    private boolean checkIfOpen(JsonNode schedule, LocalDateTime now) {
-        if (schedule.path("is_24x7").asBoolean(false)) {
-            return true;
-        }
-
-        String dayName = now.getDayOfWeek().getDisplayName(TextStyle.SHORT, Locale.ENGLISH);
-        dayName = dayName.substring(0, 1).toUpperCase() + dayName.substring(1, 3).toLowerCase();
-
-        JsonNode daySchedule = schedule.path(dayName);
-        if (daySchedule.isMissingNode()) {
-            return false;
-        }
-
-        JsonNode workingHours = daySchedule.path("working_hours");
-        if (!workingHours.isArray() || workingHours.isEmpty()) {
-            return false;
+    static WeeklySchedule parseSchedule(GisItemsResponse.Schedule schedule) {
+        if (Boolean.TRUE.equals(schedule.getIs24x7())) {
+            return WeeklySchedule.ALWAYS_OPEN;
         }
 
-        LocalTime currentTime = now.toLocalTime();
-        for (JsonNode hours : workingHours) {
-            String fromStr = hours.path("from").asText("");
-            String toStr = hours.path("to").asText("");
-
-            if (!fromStr.isEmpty() && !toStr.isEmpty()) {
-                try {
-                    LocalTime from = LocalTime.parse(fromStr);
-                    LocalTime to = LocalTime.parse(toStr);
-
-                    if (!currentTime.isBefore(from) && !currentTime.isAfter(to)) {
-                        return true;
-                    }
-                } catch (Exception ignored) {
+        // День без working_hours — выходной
+        WeeklySchedule.Builder builder = WeeklySchedule.builder();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            GisItemsResponse.DaySchedule daySchedule = daySchedule(schedule, day);
+            if (daySchedule == null || daySchedule.getWorkingHours() == null) {
+                continue;
+            }
+            for (GisItemsResponse.WorkingHours hours : daySchedule.getWorkingHours()) {
+                int from = WeeklySchedule.parseMinutes(hours.getFrom());
+                int to = WeeklySchedule.parseMinutes(hours.getTo());
+                if (from >= 0 && to >= 0) {
+                    builder.add(day, from, to);
                 }
             }
         }
+        return builder.build();
+    }
 
-        return false;
+    private static GisItemsResponse.DaySchedule daySchedule(GisItemsResponse.Schedule schedule, DayOfWeek day) {
+        return switch (day) {
+            case MONDAY -> schedule.getMon();
+            case TUESDAY -> schedule.getTue();
+            case WEDNESDAY -> schedule.getWed();
+            case THURSDAY -> schedule.getThu();
+            case FRIDAY -> schedule.getFri();
+            case SATURDAY -> schedule.getSat();
+            case SUNDAY -> schedule.getSun();
+        };
+    }
+
+    private List<PlaceDto> blockForList(Mono<List<PlaceDto>> mono) {
+        List<PlaceDto> result = mono.block();
+        return result != null ? result : Collections.emptyList();
     }
 
     private String extractHost(String url) {
@@ -360,4 +462,20 @@ public class GisApiClient {
                 .orElse("");
     }
 
-}
\ No newline at end of file
+    private record ItemsQuery(String regionId, String rubricId, String text) {
+
+        static ItemsQuery rubric(String regionId, String rubricId) {
+            return new ItemsQuery(regionId, rubricId, null);
+        }
+
+        static ItemsQuery text(String text) {
+            return new ItemsQuery(null, null, text);
+        }
+
+        // Рубрика в 2GIS глобальная, местоположение задаёт тайл — регион в ключ не входит
+        String cacheKey() {
+            return rubricId != null ? "rubric:" + rubricId : "q:" + text;
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.strollie.route.client;
+
+import com.strollie.route.cache.RegionLookup;
+import com.strollie.route.config.ApiKeysConfig;
+import com.strollie.route.model.external.gis.GisRegionSearchResponse;
+import com.strollie.route.model.external.gis.GisRubricSearchResponse;
+import com.strollie.route.service.CategoryCacheService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Справочники 2GIS: регион по названию города и рубрика по названию категории.
+ * Результаты кэширует {@link com.strollie.route.cache.CityRegionCache}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GisCatalogClient implements RegionLookup {
+
+    private static final String REGION_SEARCH_ENDPOINT = "/2.0/region/search";
+    private static final String RUBRIC_SEARCH_ENDPOINT = "/2.0/catalog/rubric/search";
+
+    private final WebClient gisWebClient;
+    private final ApiKeysConfig config;
+    private final CategoryCacheService categoryCacheService;
+
+    @Override
+    public Mono<String> findRegionId(String city) {
+        if (city == null || city.isBlank()) {
+            return Mono.empty();
+        }
+
+        return Mono.defer(() -> gisWebClient.get()
+                        .uri(url(REGION_SEARCH_ENDPOINT)
+                                .queryParam("q", city.trim())
+                                .build()
+                                .encode()
+                                .toUri())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .retrieve()
+                        .bodyToMono(GisRegionSearchResponse.class))
+                .timeout(timeout())
+                .flatMap(response -> Mono.justOrEmpty(Optional.ofNullable(response.getResult())
+                        .map(GisRegionSearchResponse.Result::getItems)
+                        .filter(items -> !items.isEmpty())
+                        .map(items -> items.get(0).getId())))
+                .doOnNext(id -> log.info(">>> REGION: '{}' -> {}", city, id))
+                .doOnError(e -> log.warn("Failed to resolve region for '{}': {}", city, e.toString()));
+    }
+
+    /**
+     * Рубрика сначала ищется в categories.json (без запроса к API), затем через поиск рубрик
+     * в регионе: предпочитается точное совпадение названия, иначе рубрика с наибольшим числом филиалов.
+     */
+    @Override
+    public Mono<String> findRubricId(String regionId, String category) {
+        String knownId = categoryCacheService.getCategoryIdByName(category);
+        if (knownId != null) {
+            return Mono.just(knownId);
+        }
+        if (regionId == null || regionId.isBlank() || category == null || category.isBlank()) {
+            return Mono.empty();
+        }
+
+        return Mono.defer(() -> gisWebClient.get()
+                        .uri(url(RUBRIC_SEARCH_ENDPOINT)
+                                .queryParam("q", category.trim())
+                                .queryParam("region_id", regionId)
+                                .build()
+                                .encode()
+                                .toUri())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .retrieve()
+                        .bodyToMono(GisRubricSearchResponse.class))
+                .timeout(timeout())
+                .flatMap(response -> Mono.justOrEmpty(Optional.ofNullable(response.getResult())
+                        .map(GisRubricSearchResponse.Result::getItems)
+                        .flatMap(items -> bestRubric(items, category))))
+                .doOnNext(id -> log.info(">>> RUBRIC: '{}' in region {} -> {}", category, regionId, id))
+                .doOnError(e -> log.warn("Failed to resolve rubric for '{}': {}", category, e.toString()));
+    }
+
+    private Optional<String> bestRubric(List<GisRubricSearchResponse.Item> items, String category) {
+        return items.stream()
+                .filter(item -> category.trim().equalsIgnoreCase(item.getName()))
+                .findFirst()
+                .or(() -> items.stream().max(Comparator.comparingInt(GisRubricSearchResponse.Item::getBranchCount)))
+                .map(GisRubricSearchResponse.Item::getId);
+    }
+
+    private UriComponentsBuilder url(String path) {
+        String baseUrl = Optional.ofNullable(config.getGis().getBaseUrl()).orElse("https://catalog.api.2gis.com");
+        return UriComponentsBuilder.fromUriString(baseUrl)
+                .path(path)
+                .queryParam("key", Optional.ofNullable(config.getGis().getKey()).map(String::trim).orElse(""));
+    }
+
+    private Duration timeout() {
+        return Duration.ofMillis(Math.max(1000, config.getGis().getTimeout()));
+    }
+
+}
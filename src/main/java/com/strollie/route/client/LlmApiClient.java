@@ -3,20 +3,28 @@ package com.strollie.route.client;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.strollie.route.cache.LlmResponseCache;
 import com.strollie.route.config.ApiKeysConfig;
 import com.strollie.route.model.dto.PlaceDto;
+import com.strollie.route.util.LatencyTracker;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -24,58 +32,61 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class LlmApiClient {
 
-    private final WebClient webClient;
+    private final WebClient llmWebClient;
+    private final LatencyTracker llmLatencyTracker;
+    private final LlmCircuitBreaker circuitBreaker;
     private final ApiKeysConfig apiKeysConfig;
     private final ObjectMapper objectMapper;
+    private final LlmResponseCache responseCache;
+
+    // --- ОБНОВЛЕННЫЙ ПРОМПТ С ЛОГИКОЙ ВРЕМЕНИ ---
+    private static final String FILTER_SYSTEM_PROMPT = """
+            You are an expert travel route planner.
+            Your task is to select the BEST subset of places from the provided candidates to create a logical walking route.
+            
+            CRITICAL INSTRUCTIONS ON QUANTITY AND TIME:
+            1. Analyze the 'User description' to understand the desired vibe (relaxed vs. intense) and specific interests.
+            2. Strictly respect the 'Available duration'. 
+               - Estimate visit times: ~1.5h for Museums/Galleries, ~1h for Restaurants, ~30m for quick stops/Cafes/Parks.
+               - Account for walking time between stops.
+            3. Adjust the NUMBER of places based on duration:
+               - Short walk (1-2h): Select 1-3 high-quality matches.
+               - Medium walk (3-4h): Select 3-5 matches.
+               - Long day (5h+): Select 5-8 matches.
+            4. Do not overcrowd the route. It is better to pick fewer, highly relevant places than many random ones.
+            5. Sort the selected places by relevance to the user's wish.
+            """;
+    // ---------------------------------------------
+
+    private static final String COMBINED_SYSTEM_PROMPT = FILTER_SYSTEM_PROMPT + """
+            
+            In the same answer write the route description in Russian:
+            - 'summary': 1-2 engaging sentences about the overall vibe of the walk;
+            - for every selected place, 'highlight': one sentence on why it is worth visiting.
+            The places will be visited in a different order than you list them, and the highlights
+            will be joined in that final order. So never refer to order ("first", "then", "finally")
+            and make every highlight readable on its own.
+            """;
+
+    private static final String DESCRIPTION_SYSTEM_PROMPT = """
+            You are an enthusiastic travel guide.
+            Write a short, engaging summary (3-5 sentences) of the walking route provided.
+            Mention key highlights and the overall vibe.
+            Language: Russian.
+            """;
 
     public List<PlaceDto> filterPlaces(List<PlaceDto> candidates, String userDescription, int durationHours) {
+        return filterPlacesReactive(candidates, userDescription, durationHours).block();
+    }
+
+    public Mono<List<PlaceDto>> filterPlacesReactive(List<PlaceDto> candidates, String userDescription, int durationHours) {
         if (candidates == null || candidates.isEmpty()) {
-            return Collections.emptyList();
+            return Mono.just(Collections.emptyList());
         }
 
-        try {
-            // Отправляем упрощенные данные
-            List<Map<String, String>> simplifiedCandidates = candidates.stream()
-                    .map(p -> {
-                        Map<String, String> map = new HashMap<>();
-                        map.put("id", p.getId());
-                        map.put("name", p.getName());
-                        map.put("category", p.getCategory());
-                        map.put("rating", String.valueOf(p.getRating()));
-                        if (p.getDescription() != null) {
-                            map.put("description", p.getDescription().substring(0, Math.min(p.getDescription().length(), 200)));
-                        }
-                        return map;
-                    })
-                    .toList();
-
-            String candidatesJson = objectMapper.writeValueAsString(simplifiedCandidates);
-
-            // --- ОБНОВЛЕННЫЙ ПРОМПТ С ЛОГИКОЙ ВРЕМЕНИ ---
-            String systemPrompt = """
-                    You are an expert travel route planner.
-                    Your task is to select the BEST subset of places from the provided candidates to create a logical walking route.
-                    
-                    CRITICAL INSTRUCTIONS ON QUANTITY AND TIME:
-                    1. Analyze the 'User description' to understand the desired vibe (relaxed vs. intense) and specific interests.
-                    2. Strictly respect the 'Available duration'. 
-                       - Estimate visit times: ~1.5h for Museums/Galleries, ~1h for Restaurants, ~30m for quick stops/Cafes/Parks.
-                       - Account for walking time between stops.
-                    3. Adjust the NUMBER of places based on duration:
-                       - Short walk (1-2h): Select 1-3 high-quality matches.
-                       - Medium walk (3-4h): Select 3-5 matches.
-                       - Long day (5h+): Select 5-8 matches.
-                    4. Do not overcrowd the route. It is better to pick fewer, highly relevant places than many random ones.
-                    5. Sort the selected places by relevance to the user's wish.
-                    """;
-            // ---------------------------------------------
-
-            String userPrompt = String.format(
-                    "User description: %s\nAvailable duration: %d hours\n\nCandidates list JSON: %s",
-                    userDescription,
-                    durationHours,
-                    candidatesJson
-            );
+        return Mono.fromCallable(() -> encodeCandidates(candidates)).flatMap(table -> {
+            String systemPrompt = FILTER_SYSTEM_PROMPT;
+            String userPrompt = filterPrompt(userDescription, durationHours, table);
 
             Map<String, Object> jsonSchema = Map.of(
                     "type", "object",
@@ -85,7 +96,7 @@ public class LlmApiClient {
                                     "items", Map.of(
                                             "type", "object",
                                             "properties", Map.of(
-                                                    "id", Map.of("type", "string", "description", "The ID of the selected place")
+                                                    "id", Map.of("type", "string", "description", "The # number of the selected place from the candidates table")
                                             ),
                                             "required", List.of("id"),
                                             "additionalProperties", false
@@ -96,18 +107,136 @@ public class LlmApiClient {
                     "additionalProperties", false
             );
 
-            String responseContent = callLlm(systemPrompt, userPrompt, jsonSchema, "filter_response");
+            return callLlm(systemPrompt, userPrompt, jsonSchema, "filter_response")
+                    .map(responseContent -> selectCandidates(candidates, table, responseContent));
+        }).switchIfEmpty(Mono.fromSupplier(() -> {
+            // В деградированном режиме пустой результат включает отбор по рейтингу в оркестраторе
+            if (!circuitBreaker.isCallPermitted()) {
+                log.info(">>> LLM degraded: skipping filtering");
+                return Collections.<PlaceDto>emptyList();
+            }
+            return candidates;
+        })).onErrorResume(e -> {
+            log.error("Unexpected error during LLM filtering", e);
+            return Mono.just(candidates);
+        });
+    }
+
+    public boolean isCombinedMode() {
+        return apiKeysConfig.getLlm().isCombinedMode();
+    }
+
+    /**
+     * Комбинированный режим: один вызов выбирает места и сразу пишет к ним описание.
+     * Описание собирается после TSP через {@link RouteSelection#describe}, поэтому отдельный
+     * запрос на описание не нужен. Если модель не ответила, summary пустое, и описание
+     * генерируется обычным путём.
+     */
+    public Mono<RouteSelection> selectWithDescriptionReactive(List<PlaceDto> candidates, String userDescription,
+                                                              int durationHours) {
+        if (candidates == null || candidates.isEmpty()) {
+            return Mono.just(RouteSelection.of(Collections.emptyList()));
+        }
+
+        return Mono.fromCallable(() -> encodeCandidates(candidates)).flatMap(table -> {
+            String userPrompt = filterPrompt(userDescription, durationHours, table);
+
+            Map<String, Object> jsonSchema = Map.of(
+                    "type", "object",
+                    "properties", Map.of(
+                            "places", Map.of(
+                                    "type", "array",
+                                    "items", Map.of(
+                                            "type", "object",
+                                            "properties", Map.of(
+                                                    "id", Map.of("type", "string", "description", "The # number of the selected place from the candidates table"),
+                                                    "highlight", Map.of("type", "string", "description", "One sentence in Russian on why the place is worth visiting")
+                                            ),
+                                            "required", List.of("id", "highlight"),
+                                            "additionalProperties", false
+                                    )
+                            ),
+                            "summary", Map.of("type", "string", "description", "1-2 sentences in Russian about the overall vibe of the route")
+                    ),
+                    "required", List.of("places", "summary"),
+                    "additionalProperties", false
+            );
+
+            return callLlm(COMBINED_SYSTEM_PROMPT, userPrompt, jsonSchema, "combined_response")
+                    .map(responseContent -> parseSelection(candidates, table, responseContent));
+        }).switchIfEmpty(Mono.fromSupplier(() -> {
+            if (!circuitBreaker.isCallPermitted()) {
+                log.info(">>> LLM degraded: skipping filtering");
+                return RouteSelection.of(Collections.emptyList());
+            }
+            return RouteSelection.of(candidates);
+        })).onErrorResume(e -> {
+            log.error("Unexpected error during combined LLM call", e);
+            return Mono.just(RouteSelection.of(candidates));
+        });
+    }
+
+    private RouteSelection parseSelection(List<PlaceDto> candidates, CandidateTable table, String responseContent) {
+        try {
+            CombinedResponseWrapper wrapper = objectMapper.readValue(responseContent, CombinedResponseWrapper.class);
+            if (wrapper.getPlaces() == null || wrapper.getPlaces().isEmpty()) {
+                return RouteSelection.of(candidates);
+            }
 
-            if (responseContent == null) return candidates;
+            List<PlaceDto> selected = new ArrayList<>();
+            Map<String, String> highlights = new HashMap<>();
+            for (CombinedResponseWrapper.Pick pick : wrapper.getPlaces()) {
+                PlaceDto place = pick.getId() != null ? table.places().get(pick.getId().trim()) : null;
+                if (place != null && !selected.contains(place)) {
+                    selected.add(place);
+                    if (pick.getHighlight() != null && !pick.getHighlight().isBlank()) {
+                        highlights.put(place.getId(), pick.getHighlight().trim());
+                    }
+                }
+            }
 
+            if (selected.isEmpty()) {
+                return RouteSelection.of(candidates);
+            }
+            String summary = wrapper.getSummary() != null && !wrapper.getSummary().isBlank()
+                    ? wrapper.getSummary().trim()
+                    : null;
+            return new RouteSelection(selected, summary, highlights);
+
+        } catch (Exception e) {
+            log.error("Unexpected error during combined LLM call", e);
+            return RouteSelection.of(candidates);
+        }
+    }
+
+    private String filterPrompt(String userDescription, int durationHours, CandidateTable table) {
+        return String.format(
+                "User description: %s\nAvailable duration: %d hours\n\n"
+                        + "Candidates table (first row is the header, '-' means unknown):\n%s",
+                userDescription,
+                durationHours,
+                table.text()
+        );
+    }
+
+    private CandidateTable encodeCandidates(List<PlaceDto> candidates) {
+        CandidateTable table = CandidateTable.encode(candidates, apiKeysConfig.getLlm().getFilterTokenBudget());
+
+        if (log.isInfoEnabled()) {
+            int tokens = table.estimatedTokens();
+            int jsonTokens = CandidateTable.estimateJsonTokens(candidates);
+            log.info(">>> LLM FILTER: {} of {} candidates, ~{} tokens (JSON ~{}, saved ~{}), {} trimmed by budget",
+                    table.places().size(), candidates.size(), tokens, jsonTokens, jsonTokens - tokens, table.dropped());
+        }
+        return table;
+    }
+
+    private List<PlaceDto> selectCandidates(List<PlaceDto> candidates, CandidateTable table, String responseContent) {
+        try {
             LlmResponseWrapper wrapper = objectMapper.readValue(responseContent, LlmResponseWrapper.class);
 
             if (wrapper.getPlaces() != null && !wrapper.getPlaces().isEmpty()) {
-                List<String> selectedIds = wrapper.getPlaces().stream().map(PlaceDto::getId).toList();
-
-                List<PlaceDto> filtered = candidates.stream()
-                        .filter(c -> selectedIds.contains(c.getId()))
-                        .toList();
+                List<PlaceDto> filtered = table.resolve(wrapper.getPlaces().stream().map(PlaceDto::getId).toList());
 
                 return filtered.isEmpty() ? candidates : filtered;
             }
@@ -121,27 +250,17 @@ public class LlmApiClient {
     }
 
     public String generateRouteDescription(List<PlaceDto> route, String userDescription) {
+        return generateRouteDescriptionReactive(route, userDescription).block();
+    }
+
+    public Mono<String> generateRouteDescriptionReactive(List<PlaceDto> route, String userDescription) {
         if (route == null || route.isEmpty()) {
-            return "Маршрут не найден.";
+            return Mono.just("Маршрут не найден.");
         }
 
-        try {
-            String routeSummary = route.stream()
-                    .map(p -> String.format("- %s (%s)", p.getName(), p.getCategory()))
-                    .collect(Collectors.joining("\n"));
-
-            String systemPrompt = """
-                    You are an enthusiastic travel guide.
-                    Write a short, engaging summary (3-5 sentences) of the walking route provided.
-                    Mention key highlights and the overall vibe.
-                    Language: Russian.
-                    """;
-
-            String userPrompt = String.format(
-                    "User's wish: %s\n\nRoute Sequence:\n%s",
-                    userDescription,
-                    routeSummary
-            );
+        return Mono.defer(() -> {
+            String systemPrompt = DESCRIPTION_SYSTEM_PROMPT;
+            String userPrompt = descriptionPrompt(route, userDescription);
 
             Map<String, Object> jsonSchema = Map.of(
                     "type", "object",
@@ -155,20 +274,112 @@ public class LlmApiClient {
                     "additionalProperties", false
             );
 
-            String responseContent = callLlm(systemPrompt, userPrompt, jsonSchema, "description_response");
+            return callLlm(systemPrompt, userPrompt, jsonSchema, "description_response")
+                    .map(this::parseDescription)
+                    .switchIfEmpty(Mono.fromSupplier(() -> circuitBreaker.isCallPermitted()
+                            ? "Приятной прогулки по выбранным местам!"
+                            : templateDescription(route)));
+        }).onErrorResume(e -> {
+            log.error("Error generating route description", e);
+            return Mono.just("Приятной прогулки!");
+        });
+    }
+
+    /**
+     * Потоковое описание маршрута: фрагменты текста по мере генерации моделью.
+     * <p>
+     * Таймаут LLM действует на паузу между фрагментами, а не на весь ответ. Ошибка до первого
+     * фрагмента заменяется запасным текстом, после — поток просто завершается на уже отданном.
+     */
+    public Flux<String> streamRouteDescription(List<PlaceDto> route, String userDescription) {
+        if (route == null || route.isEmpty()) {
+            return Flux.just("Маршрут не найден.");
+        }
+
+        return Flux.defer(() -> {
+            String userPrompt = descriptionPrompt(route, userDescription);
+            String systemPrompt = DESCRIPTION_SYSTEM_PROMPT + "Reply with plain text only.\n";
+
+            Map<String, Object> requestBody = new HashMap<>();
+            requestBody.put("model", apiKeysConfig.getLlm().getModel());
+            requestBody.put("messages", List.of(
+                    Map.of("role", "system", "content", systemPrompt),
+                    Map.of("role", "user", "content", userPrompt)
+            ));
+            requestBody.put("temperature", 0.5);
+            requestBody.put("max_tokens", 1000);
+            requestBody.put("stream", true);
+
+            AtomicBoolean emitted = new AtomicBoolean();
+            return responseCache.getOrStream(apiKeysConfig.getLlm().getModel(), "description_stream", systemPrompt, userPrompt,
+                            () -> circuitBreaker.protect(llmWebClient.post()
+                                    .uri(apiKeysConfig.getLlm().getBaseUrl() + "/chat/completions")
+                                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKeysConfig.getLlm().getKey())
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .accept(MediaType.TEXT_EVENT_STREAM)
+                                    .bodyValue(requestBody)
+                                    .retrieve()
+                                    .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+                                    .timeout(llmLatencyTracker.timeout())
+                                    .takeWhile(event -> !"[DONE]".equals(event.data()))
+                                    .<String>handle((event, sink) -> {
+                                        String delta = extractDelta(event.data());
+                                        if (delta != null && !delta.isEmpty()) {
+                                            sink.next(delta);
+                                        }
+                                    })))
+                    .doOnNext(delta -> emitted.set(true))
+                    .onErrorResume(e -> {
+                        log.error("LLM stream failed: {}", e.getMessage());
+                        return emitted.get() ? Flux.empty() : Flux.just("Приятной прогулки!");
+                    })
+                    .switchIfEmpty(Flux.defer(() -> Flux.just(circuitBreaker.isCallPermitted()
+                            ? "Приятной прогулки по выбранным местам!"
+                            : templateDescription(route))));
+        });
+    }
 
-            if (responseContent == null) return "Приятной прогулки по выбранным местам!";
+    private String descriptionPrompt(List<PlaceDto> route, String userDescription) {
+        String routeSummary = route.stream()
+                .map(p -> String.format("- %s (%s)", p.getName(), p.getCategory()))
+                .collect(Collectors.joining("\n"));
 
+        return String.format(
+                "User's wish: %s\n\nRoute Sequence:\n%s",
+                userDescription,
+                routeSummary
+        );
+    }
+
+    /**
+     * Описание без LLM для деградированного режима: перечисление мест в порядке обхода.
+     */
+    String templateDescription(List<PlaceDto> route) {
+        List<PlaceDto> stops = route.stream()
+                .filter(p -> !"start".equals(p.getId()))
+                .toList();
+        if (stops.isEmpty()) {
+            return "Приятной прогулки!";
+        }
+
+        String sequence = stops.stream()
+                .map(p -> p.getCategory() != null ? p.getName() + " (" + p.getCategory() + ")" : p.getName())
+                .collect(Collectors.joining(" → "));
+        return String.format("Маршрут из %d %s: %s. Приятной прогулки!",
+                stops.size(), stops.size() == 1 ? "места" : "мест", sequence);
+    }
+
+    private String parseDescription(String responseContent) {
+        try {
             DescriptionResponseWrapper wrapper = objectMapper.readValue(responseContent, DescriptionResponseWrapper.class);
             return wrapper.getDescription() != null ? wrapper.getDescription() : "Приятной прогулки!";
-
         } catch (Exception e) {
             log.error("Error generating route description", e);
             return "Приятной прогулки!";
         }
     }
 
-    private String callLlm(String systemPrompt, String userPrompt, Map<String, Object> schema, String schemaName) {
+    private Mono<String> callLlm(String systemPrompt, String userPrompt, Map<String, Object> schema, String schemaName) {
         Map<String, Object> requestBody = new HashMap<>();
         requestBody.put("model", apiKeysConfig.getLlm().getModel());
         requestBody.put("messages", List.of(
@@ -188,18 +399,25 @@ public class LlmApiClient {
 
         requestBody.put("max_tokens", 1000);
 
-        try {
-            String rawResponse = webClient.post()
-                    .uri(apiKeysConfig.getLlm().getBaseUrl() + "/chat/completions")
-                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKeysConfig.getLlm().getKey())
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
+        return responseCache.getOrCall(apiKeysConfig.getLlm().getModel(), schemaName, systemPrompt, userPrompt,
+                () -> circuitBreaker.protect(llmLatencyTracker.track(llmWebClient.post()
+                                .uri(apiKeysConfig.getLlm().getBaseUrl() + "/chat/completions")
+                                .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKeysConfig.getLlm().getKey())
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .bodyValue(requestBody)
+                                .retrieve()
+                                .bodyToMono(String.class)))
+                        .flatMap(rawResponse -> Mono.justOrEmpty(extractContent(rawResponse)))
+                        .onErrorResume(e -> {
+                            log.error("LLM Call Failed: {}", e.getMessage());
+                            return Mono.empty();
+                        }));
+    }
 
-            if (rawResponse == null || rawResponse.isBlank()) return null;
+    private String extractContent(String rawResponse) {
+        if (rawResponse == null || rawResponse.isBlank()) return null;
 
+        try {
             JsonNode rootNode = objectMapper.readTree(rawResponse);
 
             if (rootNode.has("error")) {
@@ -217,6 +435,67 @@ public class LlmApiClient {
         return null;
     }
 
+    private String extractDelta(String chunk) {
+        if (chunk == null || chunk.isBlank()) return null;
+
+        try {
+            JsonNode choices = objectMapper.readTree(chunk).get("choices");
+            if (choices != null && !choices.isEmpty()) {
+                JsonNode content = choices.get(0).path("delta").get("content");
+                return content != null && !content.isNull() ? content.asText() : null;
+            }
+        } catch (Exception e) {
+            log.warn("Malformed LLM stream chunk: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Выбранные места и заготовка описания из комбинированного вызова.
+     *
+     * @param summary    общая часть описания; null — описание нужно генерировать отдельно
+     * @param highlights фраза о месте по его id
+     */
+    public record RouteSelection(List<PlaceDto> places, String summary, Map<String, String> highlights) {
+
+        static RouteSelection of(List<PlaceDto> places) {
+            return new RouteSelection(places, null, Map.of());
+        }
+
+        /**
+         * Описание в порядке обхода: общая часть, затем фразы о местах маршрута.
+         * Места, которые TSP не включил в маршрут, в описание не попадают.
+         */
+        public String describe(List<PlaceDto> orderedRoute) {
+            if (summary == null) {
+                return null;
+            }
+
+            StringBuilder description = new StringBuilder(summary);
+            for (PlaceDto place : orderedRoute) {
+                String highlight = highlights.get(place.getId());
+                if (highlight != null) {
+                    description.append(' ').append(highlight);
+                }
+            }
+            return description.toString();
+        }
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class CombinedResponseWrapper {
+        private List<Pick> places;
+        private String summary;
+
+        @Data
+        @JsonIgnoreProperties(ignoreUnknown = true)
+        private static class Pick {
+            private String id;
+            private String highlight;
+        }
+    }
+
     @Data
     @JsonIgnoreProperties(ignoreUnknown = true)
     private static class LlmResponseWrapper {
@@ -0,0 +1,194 @@
+package com.strollie.route.client;
+
+import com.strollie.route.config.ApiKeysConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Предохранитель для вызовов LLM.
+ * <p>
+ * Считает исходы последних {@code window-size} вызовов; ошибкой считается и исключение, и ответ
+ * дольше {@code slow-call-millis}. Когда доля ошибок достигает порога, цепь размыкается: вызовы
+ * сразу возвращают пустой результат, и этапы конвейера уходят на детерминированный путь
+ * (исходные категории, отбор по рейтингу, шаблонное описание). Восстановление проверяется
+ * фоновым пробным запросом, а не запросами пользователей.
+ */
+@Slf4j
+@Component
+public class LlmCircuitBreaker {
+
+    public enum State {CLOSED, OPEN, HALF_OPEN}
+
+    private final ApiKeysConfig config;
+    private final ApiKeysConfig.CircuitBreaker settings;
+    private final WebClient llmWebClient;
+    private final Clock clock;
+
+    // Кольцо исходов: true — неуспешный вызов
+    private final boolean[] outcomes;
+    private int next;
+    private int size;
+    private int failures;
+
+    private volatile State state = State.CLOSED;
+    private volatile long openedAt;
+
+    @Autowired
+    public LlmCircuitBreaker(ApiKeysConfig config, WebClient llmWebClient) {
+        this(config, llmWebClient, Clock.systemUTC());
+    }
+
+    LlmCircuitBreaker(ApiKeysConfig config, WebClient llmWebClient, Clock clock) {
+        this.config = config;
+        this.settings = config.getLlm().getCircuitBreaker();
+        this.llmWebClient = llmWebClient;
+        this.clock = clock;
+        this.outcomes = new boolean[Math.max(1, settings.getWindowSize())];
+    }
+
+    public boolean isCallPermitted() {
+        return !settings.isEnabled() || state == State.CLOSED;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Выполняет вызов, если цепь замкнута, и учитывает его исход; иначе — пустой Mono.
+     */
+    public <T> Mono<T> protect(Mono<T> call) {
+        if (!settings.isEnabled()) {
+            return call;
+        }
+
+        return Mono.defer(() -> {
+            if (state != State.CLOSED) {
+                log.debug(">>> LLM CIRCUIT: {} — call skipped", state);
+                return Mono.empty();
+            }
+
+            long start = clock.millis();
+            return call
+                    .doOnSuccess(value -> record(elapsedMillis(start) > settings.getSlowCallMillis()))
+                    .doOnError(e -> record(true));
+        });
+    }
+
+    /**
+     * Потоковый вызов: исход определяется по первому фрагменту — медленной считается задержка
+     * до него, а не полная генерация, которая длинная по природе.
+     */
+    public <T> Flux<T> protect(Flux<T> call) {
+        if (!settings.isEnabled()) {
+            return call;
+        }
+
+        return Flux.defer(() -> {
+            if (state != State.CLOSED) {
+                log.debug(">>> LLM CIRCUIT: {} — stream skipped", state);
+                return Flux.empty();
+            }
+
+            long start = clock.millis();
+            AtomicBoolean recorded = new AtomicBoolean();
+            return call
+                    .doOnNext(value -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            record(elapsedMillis(start) > settings.getSlowCallMillis());
+                        }
+                    })
+                    .doOnComplete(() -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            record(false);
+                        }
+                    })
+                    .doOnError(e -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            record(true);
+                        }
+                    });
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${api.llm.circuit-breaker.probe-interval-millis:5000}")
+    public void probe() {
+        if (state != State.OPEN || clock.millis() - openedAt < settings.getOpenMillis()) {
+            return;
+        }
+
+        state = State.HALF_OPEN;
+        log.info(">>> LLM CIRCUIT: probing provider");
+
+        long start = clock.millis();
+        llmWebClient.post()
+                .uri(config.getLlm().getBaseUrl() + "/chat/completions")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + config.getLlm().getKey())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of(
+                        "model", config.getLlm().getModel(),
+                        "max_tokens", 1,
+                        "messages", List.of(Map.of("role", "user", "content", "ping"))))
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(Duration.ofMillis(settings.getSlowCallMillis()))
+                .subscribe(
+                        response -> close(elapsedMillis(start)),
+                        error -> reopen(error.toString()));
+    }
+
+    private synchronized void record(boolean failed) {
+        if (size == outcomes.length) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            size++;
+        }
+        outcomes[next] = failed;
+        if (failed) {
+            failures++;
+        }
+        next = (next + 1) % outcomes.length;
+
+        if (state == State.CLOSED && size >= settings.getMinimumCalls()
+                && (double) failures / size >= settings.getFailureRateThreshold()) {
+            state = State.OPEN;
+            openedAt = clock.millis();
+            log.warn(">>> LLM CIRCUIT: opened after {} failed or slow of last {} calls, degraded mode for {} ms",
+                    failures, size, settings.getOpenMillis());
+        }
+    }
+
+    private synchronized void close(long probeMillis) {
+        next = 0;
+        size = 0;
+        failures = 0;
+        state = State.CLOSED;
+        log.info(">>> LLM CIRCUIT: closed, probe answered in {} ms", probeMillis);
+    }
+
+    private void reopen(String reason) {
+        openedAt = clock.millis();
+        state = State.OPEN;
+        log.warn(">>> LLM CIRCUIT: probe failed ({}), staying open", reason);
+    }
+
+    private long elapsedMillis(long startMillis) {
+        return clock.millis() - startMillis;
+    }
+
+}
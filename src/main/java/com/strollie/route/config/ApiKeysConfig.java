@@ -20,6 +20,59 @@ public class ApiKeysConfig {
         private String key;
         private int timeout;
         private int maxPlacesPerCategory;
+        // Сколько категорий balanced search запрашивает у 2GIS одновременно; не меньше
+        // CategoryEnricherService.MAX_CATEGORIES, чтобы все категории уходили одной волной
+        private int balancedConcurrency = 8;
+        // Дедлайн на одну категорию (мс); 0 — использовать timeout
+        private int categoryTimeout;
+        private PlaceCache placeCache = new PlaceCache();
+        private RegionCache regionCache = new RegionCache();
+        // Собственный пул соединений к 2GIS, независимый от LLM
+        private int maxConnections = 100;
+        private AdaptiveTimeout adaptiveTimeout = new AdaptiveTimeout();
+        private Hedging hedging = new Hedging();
+    }
+
+    @Data
+    public static class AdaptiveTimeout {
+        private boolean enabled = true;
+        // Таймаут = p99 наблюдаемых задержек * multiplier, но не меньше minMillis и не больше timeout
+        private double multiplier = 2.0;
+        private int minMillis = 1000;
+        private int minSamples = 20;
+        private int window = 256;
+    }
+
+    @Data
+    public static class Hedging {
+        private boolean enabled = true;
+        // Дублирующий GET уходит, если ответа нет дольше p95 задержки (но не раньше этого порога)
+        private int minDelayMillis = 150;
+    }
+
+    @Data
+    public static class RegionCache {
+        private long maxCities = 1000;
+        private long maxRubrics = 10000;
+        private long ttlHours = 24;
+        // После этого срока запись обновляется в фоне при следующем чтении
+        private long refreshAfterHours = 12;
+    }
+
+    @Data
+    public static class PlaceCache {
+        private boolean enabled = true;
+        // Точность geohash тайла: 6 — ячейка около 1.2 x 0.6 км
+        private int tilePrecision = 6;
+        // Радиус запроса округляется вверх до кратного этому значению
+        private int radiusBucketMeters = 1000;
+        // Сколько точных ответов (когда в странице тайла мало мест рядом) хранится в одном тайле
+        private int maxCirclesPerTile = 8;
+        private long maxEntries = 5000;
+        private long ttlMinutes = 720;
+        // Пустое значение отключает сохранение на диск
+        private String snapshotPath = "data/gis-place-cache.json";
+        private long snapshotIntervalMillis = 300000;
     }
 
     @Data
@@ -30,6 +83,47 @@ public class ApiKeysConfig {
         private String model;
         private int maxTokens;
         private int timeout;
+        private int maxConnections = 50;
+        // Оценка токенов на таблицу кандидатов в промпте фильтрации; 0 — без ограничения
+        private int filterTokenBudget = 0;
+        // Один вызов на выбор мест и описание вместо двух последовательных
+        private boolean combinedMode = false;
+        private AdaptiveTimeout adaptiveTimeout = new AdaptiveTimeout();
+        private ResponseCache cache = new ResponseCache();
+        private SemanticCache semanticCache = new SemanticCache();
+        private CircuitBreaker circuitBreaker = new CircuitBreaker();
+    }
+
+    @Data
+    public static class CircuitBreaker {
+        private boolean enabled = true;
+        // Окно последних вызовов, по которому считается доля ошибок
+        private int windowSize = 20;
+        private int minimumCalls = 10;
+        private double failureRateThreshold = 0.5;
+        // Ответ дольше этого считается ошибкой
+        private int slowCallMillis = 15000;
+        // Сколько цепь остаётся разомкнутой до пробного запроса
+        private int openMillis = 30000;
+        private int probeIntervalMillis = 5000;
+    }
+
+    @Data
+    public static class ResponseCache {
+        private boolean enabled = true;
+        private long maxSize = 1000;
+        private long ttlMinutes = 360;
+    }
+
+    @Data
+    public static class SemanticCache {
+        private boolean enabled = true;
+        // Минимальная косинусная близость описаний для повторного использования обогащения
+        private double similarityThreshold = 0.8;
+        // Группа — (город, исходные категории)
+        private long maxGroups = 1000;
+        private int maxEntriesPerGroup = 32;
+        private long ttlMinutes = 720;
     }
 
     @PostConstruct
@@ -49,6 +143,20 @@ public class ApiKeysConfig {
         log.info("  key: {}", maskedGisKey);
         log.info("  timeout: {}", gis.getTimeout());
         log.info("  maxPlacesPerCategory: {}", gis.getMaxPlacesPerCategory());
+        log.info("  balancedConcurrency: {}", gis.getBalancedConcurrency());
+        log.info("  categoryTimeout: {}", gis.getCategoryTimeout());
+        log.info("  placeCache: enabled={}, tilePrecision={}, radiusBucketMeters={}, maxCirclesPerTile={}, snapshotPath={}",
+                gis.getPlaceCache().isEnabled(), gis.getPlaceCache().getTilePrecision(),
+                gis.getPlaceCache().getRadiusBucketMeters(), gis.getPlaceCache().getMaxCirclesPerTile(),
+                gis.getPlaceCache().getSnapshotPath());
+        log.info("  maxConnections: {}, adaptiveTimeout: enabled={}, multiplier={}, minMillis={}",
+                gis.getMaxConnections(), gis.getAdaptiveTimeout().isEnabled(),
+                gis.getAdaptiveTimeout().getMultiplier(), gis.getAdaptiveTimeout().getMinMillis());
+        log.info("  hedging: enabled={}, minDelayMillis={}", gis.getHedging().isEnabled(),
+                gis.getHedging().getMinDelayMillis());
+        log.info("  regionCache: maxCities={}, maxRubrics={}, ttlHours={}, refreshAfterHours={}",
+                gis.getRegionCache().getMaxCities(), gis.getRegionCache().getMaxRubrics(),
+                gis.getRegionCache().getTtlHours(), gis.getRegionCache().getRefreshAfterHours());
 
         if (llm != null) {
             log.info("LLM:");
@@ -58,6 +166,17 @@ public class ApiKeysConfig {
             log.info("  model: {}", llm.getModel());
             log.info("  maxTokens: {}", llm.getMaxTokens());
             log.info("  timeout: {}", llm.getTimeout());
+            log.info("  filterTokenBudget: {}, combinedMode: {}", llm.getFilterTokenBudget(), llm.isCombinedMode());
+            log.info("  maxConnections: {}, adaptiveTimeout: enabled={}, multiplier={}, minMillis={}",
+                    llm.getMaxConnections(), llm.getAdaptiveTimeout().isEnabled(),
+                    llm.getAdaptiveTimeout().getMultiplier(), llm.getAdaptiveTimeout().getMinMillis());
+            log.info("  cache: enabled={}, maxSize={}, ttlMinutes={}", llm.getCache().isEnabled(),
+                    llm.getCache().getMaxSize(), llm.getCache().getTtlMinutes());
+            log.info("  circuitBreaker: enabled={}, failureRate={}, slowCallMillis={}, openMillis={}",
+                    llm.getCircuitBreaker().isEnabled(), llm.getCircuitBreaker().getFailureRateThreshold(),
+                    llm.getCircuitBreaker().getSlowCallMillis(), llm.getCircuitBreaker().getOpenMillis());
+            log.info("  semanticCache: enabled={}, threshold={}", llm.getSemanticCache().isEnabled(),
+                    llm.getSemanticCache().getSimilarityThreshold());
         } else {
             log.warn("LLM config not provided");
         }
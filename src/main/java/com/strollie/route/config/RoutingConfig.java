@@ -0,0 +1,62 @@
+package com.strollie.route.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "routing")
+public class RoutingConfig {
+    private int defaultRadiusMeters;
+    private int minPlaces;
+    private int maxPlaces;
+    private int maxRouteDurationHours;
+    private Tsp tsp = new Tsp();
+    private TimeWindows timeWindows = new TimeWindows();
+    private Jobs jobs = new Jobs();
+
+    @Data
+    public static class Tsp {
+        // До скольких мест (без старта) порядок ищется точно (Held-Karp): 10 мест — ~0.3 мс, 12 — уже ~1.4 мс
+        private int exactMaxPlaces = 10;
+        // Стадии улучшения после жадного построения, в порядке применения
+        private List<String> improvers = List.of("two-opt", "or-opt");
+        // true — маршрут не возвращается в стартовую точку
+        private boolean openPath = false;
+        // Бюджет улучшения: максимум проходов и время на весь этап
+        private int maxIterations = 50;
+        private long timeBudgetMillis = 5;
+    }
+
+    @Data
+    public static class TimeWindows {
+        // Учитывать часы работы мест при построении порядка обхода; выключено — кратчайший обход
+        private boolean enabled = false;
+        // ~4.5 км/ч
+        private double walkingMetersPerMinute = 75;
+        private int visitMinutes = 45;
+        // Часы работы в 2GIS — местное время города, а не сервера
+        private String defaultZone = "Europe/Moscow";
+        // Пояс для городов вне defaultZone; ключ — название города, как в запросе
+        private Map<String, String> cityZones = new HashMap<>();
+    }
+
+    @Data
+    public static class Jobs {
+        // Сколько маршрутов строится одновременно в асинхронном режиме
+        private int concurrency = 4;
+        // Сверх очереди новые задания отклоняются с 429
+        private int queueCapacity = 100;
+        private int retryAfterSeconds = 10;
+        // Сколько хранится задание после завершения
+        private int resultTtlMinutes = 15;
+        private int maxJobs = 10000;
+        // Предел long-poll ожидания в GET /api/routes/jobs/{id}
+        private int maxWaitSeconds = 30;
+    }
+}
@@ -1,32 +1,71 @@
 package com.strollie.route.config;
 
+import com.strollie.route.util.LatencyTracker;
 import io.netty.channel.ChannelOption;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 import java.time.Duration;
 
+/**
+ * Отдельные клиенты и пулы соединений для 2GIS и LLM: медленный LLM не занимает соединения
+ * и не растягивает таймауты быстрых запросов к 2GIS.
+ */
 @Configuration
 public class WebClientConfig {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+
+    @Bean
+    public WebClient gisWebClient(ApiKeysConfig config) {
+        ApiKeysConfig.Gis gis = config.getGis();
+        return build("gis", gis.getMaxConnections(), Math.max(1000, gis.getTimeout()));
+    }
+
+    @Bean
+    public WebClient llmWebClient(ApiKeysConfig config) {
+        ApiKeysConfig.Llm llm = config.getLlm();
+        return build("llm", llm.getMaxConnections(), Math.max(1000, llm.getTimeout()));
+    }
+
+    @Bean
+    public LatencyTracker gisLatencyTracker(ApiKeysConfig config) {
+        ApiKeysConfig.Gis gis = config.getGis();
+        // Потолок — дедлайн на категорию, если он задан
+        int ceiling = gis.getCategoryTimeout() > 0 ? gis.getCategoryTimeout() : Math.max(1000, gis.getTimeout());
+        return tracker(gis.getAdaptiveTimeout(), ceiling);
+    }
+
     @Bean
-    public WebClient webClient(@Autowired ApiKeysConfig config) {
-        int connectTimeout = Math.max(5000,
-                Math.max(
-                        config.getGis() != null ? config.getGis().getTimeout() : 0,
-                        config.getLlm() != null ? config.getLlm().getTimeout() : 0
-                )
-        );
-
-        HttpClient httpClient = HttpClient.create()
-                .responseTimeout(Duration.ofMillis(connectTimeout))
-                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeout);
+    public LatencyTracker llmLatencyTracker(ApiKeysConfig config) {
+        ApiKeysConfig.Llm llm = config.getLlm();
+        return tracker(llm.getAdaptiveTimeout(), Math.max(1000, llm.getTimeout()));
+    }
+
+    private WebClient build(String name, int maxConnections, int responseTimeoutMillis) {
+        ConnectionProvider provider = ConnectionProvider.builder(name)
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(responseTimeoutMillis))
+                .maxIdleTime(Duration.ofSeconds(30))
+                .build();
+
+        // Жёсткий предел; обычно раньше срабатывает адаптивный таймаут клиента
+        HttpClient httpClient = HttpClient.create(provider)
+                .responseTimeout(Duration.ofMillis(responseTimeoutMillis))
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, Math.min(CONNECT_TIMEOUT_MILLIS, responseTimeoutMillis));
 
         return WebClient.builder()
                 .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .build();
     }
+
+    private LatencyTracker tracker(ApiKeysConfig.AdaptiveTimeout settings, int ceilingMillis) {
+        return new LatencyTracker(settings.getWindow(), settings.getMinSamples(), settings.getMultiplier(),
+                settings.getMinMillis(), ceilingMillis, settings.isEnabled());
+    }
+
 }
@@ -1,5 +1,7 @@
 package com.strollie.route.model.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.strollie.route.model.schedule.WeeklySchedule;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -7,7 +9,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @Schema(name = "Place", description = "Точка интереса (POI) в маршруте")
@@ -37,4 +39,7 @@ public class PlaceDto {
     private boolean openNow;
     @Schema(description = "URL фотографии", example = "https://example.com/photo.jpg")
     private String photoUrl;
+    @JsonIgnore
+    @Schema(hidden = true)
+    private WeeklySchedule schedule;
 }
@@ -0,0 +1,36 @@
+package com.strollie.route.model.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(name = "RouteJobResponse", description = "Состояние асинхронного задания на генерацию маршрута")
+public class RouteJobResponse {
+
+    @Schema(description = "Идентификатор задания", example = "3f2c1a9e-8d4b-4c6f-9a61-2b7e0d5c4f11")
+    private String jobId;
+
+    @Schema(description = "Статус задания", example = "DONE", allowableValues = {"QUEUED", "RUNNING", "DONE", "FAILED"})
+    private String status;
+
+    @Schema(description = "Момент постановки в очередь", example = "2025-12-02T12:00:00Z")
+    private Instant submittedAt;
+
+    @Schema(description = "Момент завершения", example = "2025-12-02T12:00:25Z")
+    private Instant completedAt;
+
+    @Schema(description = "Сгенерированный маршрут (при статусе DONE)")
+    private RouteResponse result;
+
+    @Schema(description = "Причина ошибки (при статусе FAILED)")
+    private String error;
+
+}
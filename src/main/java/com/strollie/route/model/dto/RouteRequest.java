@@ -32,6 +32,8 @@ public class RouteRequest {
     @NotNull
     @Schema(description = "Стартовая точка")
     private Point startPoint;
+    @Schema(description = "Часовой пояс маршрута (IANA); по умолчанию — пояс города из настроек", example = "Europe/Moscow")
+    private String timeZone;
 
     @Data
     @Builder
@@ -9,8 +9,23 @@ import java.util.List;
 @Data
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class GisItemsResponse {
+    private Meta meta;
     private Result result;
 
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Meta {
+        private Integer code;
+        private Error error;
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Error {
+        private String type;
+        private String message;
+    }
+
     @Data
     @JsonIgnoreProperties(ignoreUnknown = true)
     public static class Result {
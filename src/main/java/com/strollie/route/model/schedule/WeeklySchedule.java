@@ -0,0 +1,190 @@
+package com.strollie.route.model.schedule;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Недельное расписание работы места в компактном виде: отсортированные непересекающиеся
+ * интервалы [from, to) в минутах от начала недели (понедельник 00:00).
+ * <p>
+ * Интервал, переходящий через полночь (например, 18:00–02:00), разбивается на два;
+ * переход с воскресенья на понедельник учитывается при поиске окна визита.
+ */
+public final class WeeklySchedule {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    public static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+
+    public static final WeeklySchedule ALWAYS_OPEN = new WeeklySchedule(new int[]{0, MINUTES_PER_WEEK});
+
+    // Пары [from0, to0, from1, to1, ...]
+    private final int[] intervals;
+
+    private WeeklySchedule(int[] intervals) {
+        this.intervals = intervals;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Восстанавливает расписание из пар, полученных через {@link #intervals()}.
+     */
+    public static WeeklySchedule ofIntervals(int[] intervals) {
+        if (intervals == null || intervals.length % 2 != 0) {
+            throw new IllegalArgumentException("Intervals must be pairs [from, to)");
+        }
+        int previousTo = 0;
+        for (int i = 0; i < intervals.length; i += 2) {
+            int from = intervals[i];
+            int to = intervals[i + 1];
+            if (from < previousTo || to <= from || to > MINUTES_PER_WEEK) {
+                throw new IllegalArgumentException("Invalid interval [" + from + ", " + to + ")");
+            }
+            previousTo = to;
+        }
+        return new WeeklySchedule(intervals.clone());
+    }
+
+    public static int minuteOfWeek(LocalDateTime time) {
+        return (time.getDayOfWeek().getValue() - 1) * MINUTES_PER_DAY + time.getHour() * 60 + time.getMinute();
+    }
+
+    /**
+     * Разбирает время в формате HH:mm (допускается 24:00); -1, если формат не распознан.
+     */
+    public static int parseMinutes(String value) {
+        if (value == null || value.length() != 5 || value.charAt(2) != ':') {
+            return -1;
+        }
+        try {
+            int hours = Integer.parseInt(value.substring(0, 2));
+            int minutes = Integer.parseInt(value.substring(3));
+            int total = hours * 60 + minutes;
+            return hours >= 0 && minutes >= 0 && minutes < 60 && total <= MINUTES_PER_DAY ? total : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public boolean isOpenAt(LocalDateTime time) {
+        return isOpenAt(minuteOfWeek(time));
+    }
+
+    public boolean isOpenAt(int minuteOfWeek) {
+        int minute = Math.floorMod(minuteOfWeek, MINUTES_PER_WEEK);
+        for (int i = 0; i < intervals.length; i += 2) {
+            if (minute < intervals[i]) {
+                return false;
+            }
+            if (minute < intervals[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Самый ранний момент не раньше {@code arrival}, когда можно начать визит длительностью
+     * {@code visitMinutes} и закончить его до закрытия; -1, если такого окна нет в ближайшую неделю.
+     * Время — абсолютные минуты, отсчитанные от начала какой-либо недели.
+     */
+    public int earliestVisitStart(int arrival, int visitMinutes) {
+        int weekStart = Math.floorDiv(arrival, MINUTES_PER_WEEK) * MINUTES_PER_WEEK;
+        int blockFrom = -1;
+        int blockTo = -1;
+
+        // Третья неделя — чтобы ночь с воскресенья через неделю склеилась с понедельником после нее
+        for (int week = 0; week < 3; week++) {
+            int offset = weekStart + week * MINUTES_PER_WEEK;
+            for (int i = 0; i < intervals.length; i += 2) {
+                int from = offset + intervals[i];
+                int to = offset + intervals[i + 1];
+                // Смежные интервалы (через полночь или через конец недели) склеиваем в один блок
+                if (from == blockTo) {
+                    blockTo = to;
+                } else {
+                    blockFrom = from;
+                    blockTo = to;
+                }
+
+                int start = Math.max(arrival, blockFrom);
+                if (start + visitMinutes <= blockTo) {
+                    return start;
+                }
+            }
+        }
+        return -1;
+    }
+
+    public int[] intervals() {
+        return intervals.clone();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof WeeklySchedule other && Arrays.equals(intervals, other.intervals);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(intervals);
+    }
+
+    @Override
+    public String toString() {
+        return "WeeklySchedule" + Arrays.toString(intervals);
+    }
+
+    public static final class Builder {
+
+        private final List<int[]> intervals = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Добавляет часы работы в день {@code day}; {@code to <= from} означает работу после полуночи.
+         */
+        public Builder add(DayOfWeek day, int fromMinute, int toMinute) {
+            int dayStart = (day.getValue() - 1) * MINUTES_PER_DAY;
+            int from = dayStart + fromMinute;
+            int to = dayStart + (toMinute > fromMinute ? toMinute : toMinute + MINUTES_PER_DAY);
+
+            if (to <= MINUTES_PER_WEEK) {
+                intervals.add(new int[]{from, to});
+            } else {
+                // Воскресенье после полуночи — это начало недели
+                intervals.add(new int[]{from, MINUTES_PER_WEEK});
+                intervals.add(new int[]{0, to - MINUTES_PER_WEEK});
+            }
+            return this;
+        }
+
+        public WeeklySchedule build() {
+            intervals.sort((a, b) -> Integer.compare(a[0], b[0]));
+
+            List<int[]> merged = new ArrayList<>();
+            for (int[] interval : intervals) {
+                int[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+                if (last != null && interval[0] <= last[1]) {
+                    last[1] = Math.max(last[1], interval[1]);
+                } else {
+                    merged.add(new int[]{interval[0], interval[1]});
+                }
+            }
+
+            int[] flat = new int[merged.size() * 2];
+            for (int i = 0; i < merged.size(); i++) {
+                flat[2 * i] = merged.get(i)[0];
+                flat[2 * i + 1] = merged.get(i)[1];
+            }
+            return new WeeklySchedule(flat);
+        }
+    }
+
+}
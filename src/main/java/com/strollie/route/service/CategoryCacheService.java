@@ -4,25 +4,46 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.strollie.route.model.dto.CategoryDto;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class CategoryCacheService {
 
+    private static final TypeReference<List<CategoryDto>> CATEGORIES_TYPE = new TypeReference<>() {
+    };
+    // Редакторы и cp пишут файл в несколько приёмов — ждём, пока запись закончится
+    private static final long RELOAD_DEBOUNCE_MILLIS = 300;
+
     private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
     @Value("classpath:categories.json")
     private Resource resourceFile;
-    private List<CategoryDto> categories = new ArrayList<>();
+    // Внешний справочник: если задан, перекрывает встроенный и перечитывается при изменении
+    @Value("${categories.external-file:}")
+    private String externalFile;
+    // Индекс и готовый ответ подменяются одной записью, читатели всегда видят согласованную версию
+    private volatile Catalog catalog = new Catalog(CategoryIndex.EMPTY, null);
+    private WatchService watchService;
 
     @PostConstruct
     public void init() {
@@ -34,27 +55,147 @@ public class CategoryCacheService {
                 throw new RuntimeException("Файл categories.json не найден");
             }
 
-            categories = objectMapper.readValue(resourceFile.getInputStream(), new TypeReference<List<CategoryDto>>() {
-            });
+            List<CategoryDto> categories = objectMapper.readValue(resourceFile.getInputStream(), CATEGORIES_TYPE);
+            publish(CategoryIndex.of(categories));
 
-            log.info("Категории успешно загружены. Количество записей: {}", categories.size());
+            log.info("Категории успешно загружены. Количество записей: {}", catalog.index().size());
 
         } catch (IOException e) {
             log.error("Ошибка при чтении файла категорий JSON", e);
             throw new RuntimeException("Не удалось инициализировать кэш категорий", e);
         }
+
+        if (externalFile != null && !externalFile.isBlank()) {
+            Path path = Path.of(externalFile).toAbsolutePath();
+            reload(path);
+            startWatcher(path);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    /**
+     * Перечитывает внешний справочник; при ошибке разбора остаётся прежняя версия.
+     */
+    boolean reload(Path path) {
+        if (!Files.isRegularFile(path)) {
+            log.warn("Внешний файл категорий не найден: {}", path);
+            return false;
+        }
+
+        try {
+            List<CategoryDto> categories = objectMapper.readValue(path.toFile(), CATEGORIES_TYPE);
+            if (categories.isEmpty()) {
+                log.warn("Внешний файл категорий пуст, оставляем версию {}", catalog.index().version());
+                return false;
+            }
+
+            CategoryIndex next = CategoryIndex.of(categories);
+            if (next.version().equals(catalog.index().version())) {
+                return false;
+            }
+            publish(next);
+            log.info("Категории перезагружены из {}. Версия: {}, записей: {}", path, next.version(), next.size());
+            // id рубрик в CityRegionCache разрешались по прежней версии справочника
+            eventPublisher.publishEvent(new CategoryCatalogReloadedEvent(next.version()));
+            return true;
+        } catch (IOException e) {
+            log.error("Ошибка при чтении внешнего файла категорий {}: {}", path, e.getMessage());
+            return false;
+        }
+    }
+
+    // Ответ для каждой версии готовится один раз: и JSON, и его gzip
+    private void publish(CategoryIndex next) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(next.all());
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(json);
+        }
+        CategoryPayload payload = new CategoryPayload(next.version(), json, compressed.toByteArray());
+        catalog = new Catalog(next, payload);
+        log.info("Ответ со списком категорий: версия {}, {} байт JSON, {} байт gzip",
+                next.version(), json.length, payload.gzip().length);
+    }
+
+    private void startWatcher(Path path) {
+        try {
+            watchService = path.getFileSystem().newWatchService();
+            path.getParent().register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            log.error("Не удалось подписаться на изменения {}: {}", path, e.getMessage());
+            return;
+        }
+
+        Thread watcher = new Thread(() -> watch(path), "category-catalog-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        log.info("Отслеживаем изменения справочника категорий: {}", path);
+    }
+
+    private void watch(Path path) {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    changed |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                            || path.getFileName().equals(event.context());
+                }
+                key.reset();
+
+                if (changed) {
+                    Thread.sleep(RELOAD_DEBOUNCE_MILLIS);
+                    // События, накопившиеся за время ожидания, относятся к той же записи
+                    WatchKey pending;
+                    while ((pending = watchService.poll()) != null) {
+                        pending.pollEvents();
+                        pending.reset();
+                    }
+                    reload(path);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            log.debug("Отслеживание справочника категорий остановлено");
+        }
     }
 
     public List<CategoryDto> getAllCategories() {
-        return categories;
+        return catalog.index().all();
+    }
+
+    public CategoryIndex getIndex() {
+        return catalog.index();
+    }
+
+    public CategoryPayload getPayload() {
+        return catalog.payload();
     }
 
     public String getCategoryNameById(String id) {
         log.debug("Поиск названия категории по ID: {}", id);
 
-        return categories.stream().filter(c -> c.getId().equals(id)).findFirst().map(CategoryDto::getName).orElseGet(() -> {
+        CategoryDto category = catalog.index().byId(id);
+        if (category == null) {
             log.warn("Категория с ID {} не найдена", id); // WARN если ID пришел, но его нет в базе
             return null;
-        });
+        }
+        return category.getName();
+    }
+
+    public String getCategoryIdByName(String name) {
+        CategoryDto category = catalog.index().byName(name);
+        return category == null ? null : category.getId();
+    }
+
+    private record Catalog(CategoryIndex index, CategoryPayload payload) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,8 @@
+package com.strollie.route.service;
+
+/**
+ * Опубликована новая версия справочника категорий: кэши, построенные по прежней версии
+ * (например, id рубрик в {@link com.strollie.route.cache.CityRegionCache}), устарели.
+ */
+public record CategoryCatalogReloadedEvent(String version) {
+}
@@ -2,17 +2,22 @@ package com.strollie.route.service;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.strollie.route.cache.EnrichmentSemanticCache;
+import com.strollie.route.cache.LlmResponseCache;
+import com.strollie.route.client.LlmCircuitBreaker;
 import com.strollie.route.config.ApiKeysConfig;
 import com.strollie.route.model.dto.CategoryDto;
+import com.strollie.route.util.LatencyTracker;
+import com.strollie.route.util.SingleFlight;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -21,63 +26,74 @@ public class CategoryEnricherService {
 
     private static final int MAX_CATEGORIES = 8;
     private static final int MAX_ADDED_CATEGORIES = 4;
-    private final WebClient webClient;
+    private final WebClient llmWebClient;
+    private final LatencyTracker llmLatencyTracker;
+    private final LlmCircuitBreaker circuitBreaker;
     private final ApiKeysConfig config;
     private final CategoryCacheService categoryCacheService;
+    private final EnrichmentSemanticCache semanticCache;
     private final ObjectMapper objectMapper = new ObjectMapper();
+    // Промпт включает город, категории и описание — одинаковые запросы во время всплеска идут в LLM один раз
+    private final SingleFlight<String, String> inFlightCalls = new SingleFlight<>();
 
     public List<String> enrichCategories(List<String> originalCategories, String userDescription, String city) {
+        return enrichCategoriesReactive(originalCategories, userDescription, city).block();
+    }
+
+    public Mono<List<String>> enrichCategoriesReactive(List<String> originalCategories, String userDescription, String city) {
+        // categories в запросе необязательны — без них ищем только по описанию
+        List<String> original = originalCategories == null ? List.of() : originalCategories;
         if (userDescription == null || userDescription.isBlank()) {
             log.info(">>> CATEGORY ENRICHER: No description provided, using original categories");
-            return originalCategories;
+            return Mono.just(original);
         }
 
-        List<String> allowedCategories = categoryCacheService.getAllCategories().stream()
-                .map(CategoryDto::getName)
-                .toList();
+        CategoryIndex index = categoryCacheService.getIndex();
 
-        if (allowedCategories.isEmpty()) {
+        if (index.isEmpty()) {
             log.warn(">>> CATEGORY ENRICHER: Cache is empty, skipping enrichment");
-            return originalCategories;
+            return Mono.just(original);
         }
 
         log.info(">>> CATEGORY ENRICHER: Analyzing description: '{}'", userDescription);
 
-        try {
-            String prompt = buildPrompt(originalCategories, userDescription, city, allowedCategories);
-            String llmResponse = callLlm(prompt);
-
-            if (llmResponse == null || llmResponse.isBlank()) {
-                return originalCategories;
-            }
-
-            List<String> suggestedCategories = parseResponse(llmResponse);
-            List<String> validatedSuggestions = validateSuggestions(suggestedCategories, allowedCategories);
-            List<String> enrichedCategories = mergeCategories(originalCategories, validatedSuggestions);
-
-            log.info(">>> CATEGORY ENRICHER: Enriched categories: {}", enrichedCategories);
-            return enrichedCategories;
-
-        } catch (Exception e) {
-            log.error(">>> CATEGORY ENRICHER: Error during enrichment: {}", e.getMessage());
-            return originalCategories;
-        }
+        return Mono.deferContextual(ctx -> {
+                    if (!LlmResponseCache.isBypassed(ctx)) {
+                        Optional<List<String>> cached = semanticCache.find(city, original, userDescription);
+                        if (cached.isPresent()) {
+                            log.info(">>> CATEGORY ENRICHER: Reusing cached enrichment: {}", cached.get());
+                            return Mono.just(cached.get());
+                        }
+                    }
+
+                    return callLlm(buildPrompt(original, userDescription, city, index.promptFragment()))
+                            .filter(llmResponse -> !llmResponse.isBlank())
+                            .map(llmResponse -> {
+                                List<String> suggestedCategories = parseResponse(llmResponse);
+                                List<String> validatedSuggestions = validateSuggestions(suggestedCategories, index);
+                                List<String> enrichedCategories = mergeCategories(original, validatedSuggestions);
+
+                                log.info(">>> CATEGORY ENRICHER: Enriched categories: {}", enrichedCategories);
+                                semanticCache.put(city, original, userDescription, enrichedCategories);
+                                return enrichedCategories;
+                            });
+                })
+                .defaultIfEmpty(original)
+                .onErrorResume(e -> {
+                    log.error(">>> CATEGORY ENRICHER: Error during enrichment: {}", e.getMessage());
+                    return Mono.just(original);
+                });
     }
 
-    private List<String> validateSuggestions(List<String> suggestions, List<String> allowed) {
-        Set<String> allowedSetLower = allowed.stream()
-                .map(String::toLowerCase)
-                .map(String::trim)
-                .collect(Collectors.toSet());
-
-        Map<String, String> originalNameMap = allowed.stream()
-                .collect(Collectors.toMap(k -> k.toLowerCase().trim(), v -> v, (v1, v2) -> v1));
-
+    private List<String> validateSuggestions(List<String> suggestions, CategoryIndex index) {
         List<String> valid = new ArrayList<>();
         for (String suggestion : suggestions) {
-            String sLower = suggestion.toLowerCase().trim();
-            if (allowedSetLower.contains(sLower)) {
-                valid.add(originalNameMap.get(sLower));
+            CategoryDto category = index.resolve(suggestion);
+            if (category != null) {
+                if (!category.getName().equalsIgnoreCase(suggestion.trim())) {
+                    log.info(">>> CATEGORY ENRICHER: Corrected '{}' to '{}'", suggestion, category.getName());
+                }
+                valid.add(category.getName());
             } else {
                 log.warn(">>> CATEGORY ENRICHER: Ignored invalid category from LLM: '{}'", suggestion);
             }
@@ -85,9 +101,7 @@ public class CategoryEnricherService {
         return valid;
     }
 
-    private String buildPrompt(List<String> currentCategories, String description, String city, List<String> allowedCategories) {
-        String allowedListString = String.join(", ", allowedCategories);
-
+    private String buildPrompt(List<String> currentCategories, String description, String city, String allowedListString) {
         return String.format("""
                         Ты помощник для планирования маршрутов.
                         
@@ -115,51 +129,53 @@ public class CategoryEnricherService {
         );
     }
 
-    private String callLlm(String prompt) {
-        try {
-            Map<String, Object> jsonSchema = Map.of(
-                    "name", "category_response",
-                    "strict", true,
-                    "schema", Map.of(
-                            "type", "object",
-                            "properties", Map.of(
-                                    "categories", Map.of(
-                                            "type", "array",
-                                            "items", Map.of("type", "string"),
-                                            "description", "Список категорий из разрешенного списка"
-                                    )
-                            ),
-                            "required", List.of("categories"),
-                            "additionalProperties", false
-                    )
-            );
-
-            Map<String, Object> request = Map.of(
-                    "model", config.getLlm().getModel(),
-                    "max_tokens", 500,
-                    "messages", List.of(
-                            Map.of("role", "user", "content", prompt)
-                    ),
-                    "response_format", Map.of(
-                            "type", "json_schema",
-                            "json_schema", jsonSchema
-                    )
-            );
-
-            String response = webClient.post()
-                    .uri(config.getLlm().getBaseUrl() + "/chat/completions")
-                    .header("Authorization", "Bearer " + config.getLlm().getKey())
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            return extractContent(response);
-        } catch (Exception e) {
-            log.error(">>> CATEGORY ENRICHER: LLM call failed: {}", e.getMessage());
-            return null;
-        }
+    private Mono<String> callLlm(String prompt) {
+        return inFlightCalls.execute(config.getLlm().getModel() + "\n" + prompt, () -> requestLlm(prompt));
+    }
+
+    private Mono<String> requestLlm(String prompt) {
+        Map<String, Object> jsonSchema = Map.of(
+                "name", "category_response",
+                "strict", true,
+                "schema", Map.of(
+                        "type", "object",
+                        "properties", Map.of(
+                                "categories", Map.of(
+                                        "type", "array",
+                                        "items", Map.of("type", "string"),
+                                        "description", "Список категорий из разрешенного списка"
+                                )
+                        ),
+                        "required", List.of("categories"),
+                        "additionalProperties", false
+                )
+        );
+
+        Map<String, Object> request = Map.of(
+                "model", config.getLlm().getModel(),
+                "max_tokens", 500,
+                "messages", List.of(
+                        Map.of("role", "user", "content", prompt)
+                ),
+                "response_format", Map.of(
+                        "type", "json_schema",
+                        "json_schema", jsonSchema
+                )
+        );
+
+        // Пока цепь разомкнута, вызов сразу пустой — остаются исходные категории
+        return circuitBreaker.protect(llmLatencyTracker.track(llmWebClient.post()
+                        .uri(config.getLlm().getBaseUrl() + "/chat/completions")
+                        .header("Authorization", "Bearer " + config.getLlm().getKey())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(request)
+                        .retrieve()
+                        .bodyToMono(String.class)))
+                .flatMap(response -> Mono.justOrEmpty(extractContent(response)))
+                .onErrorResume(e -> {
+                    log.error(">>> CATEGORY ENRICHER: LLM call failed: {}", e.getMessage());
+                    return Mono.empty();
+                });
     }
 
     private String extractContent(String response) {
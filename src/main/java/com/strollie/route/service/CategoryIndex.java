@@ -0,0 +1,201 @@
+package com.strollie.route.service;
+
+import com.strollie.route.model.dto.CategoryDto;
+import com.strollie.route.util.FuzzyTrie;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Неизменяемый индекс справочника категорий: строится один раз при загрузке,
+ * поиск по id и по названию — O(1) без потоков и временных коллекций.
+ * При дублях побеждает первая запись файла.
+ * <p>
+ * Для ответов LLM и подсказок при вводе есть префиксное дерево: {@link #resolve} прощает
+ * расхождения в окончаниях («Музей» → «Музеи»), {@link #suggest} ищет по началу любого слова.
+ */
+public final class CategoryIndex {
+
+    public static final CategoryIndex EMPTY = of(List.of());
+
+    private final List<CategoryDto> categories;
+    private final Map<String, CategoryDto> byId;
+    private final Map<String, CategoryDto> byNormalizedName;
+    private final List<String> names;
+    private final String promptFragment;
+    private final String version;
+    // Полные нормализованные названия
+    private final FuzzyTrie<CategoryDto> nameTrie = new FuzzyTrie<>();
+    // Хвосты названий, начинающиеся со второго и следующих слов
+    private final FuzzyTrie<CategoryDto> wordTrie = new FuzzyTrie<>();
+
+    private CategoryIndex(List<CategoryDto> categories, Map<String, CategoryDto> byId,
+                          Map<String, CategoryDto> byNormalizedName, List<String> names) {
+        for (Map.Entry<String, CategoryDto> entry : byNormalizedName.entrySet()) {
+            String name = entry.getKey();
+            nameTrie.put(name, entry.getValue());
+            for (int i = 1; i < name.length(); i++) {
+                if (Character.isLetterOrDigit(name.charAt(i)) && !Character.isLetterOrDigit(name.charAt(i - 1))) {
+                    wordTrie.put(name.substring(i), entry.getValue());
+                }
+            }
+        }
+        this.categories = categories;
+        this.byId = byId;
+        this.byNormalizedName = byNormalizedName;
+        this.names = names;
+        // Список для промпта обогащения одинаков для всех запросов — собираем его заранее
+        this.promptFragment = String.join(", ", names);
+        this.version = versionOf(categories);
+    }
+
+    public static CategoryIndex of(List<CategoryDto> categories) {
+        Map<String, CategoryDto> byId = new HashMap<>();
+        Map<String, CategoryDto> byName = new HashMap<>();
+        List<String> names = new ArrayList<>(categories.size());
+
+        for (CategoryDto category : categories) {
+            if (category.getId() != null) {
+                byId.putIfAbsent(category.getId(), category);
+            }
+            if (category.getName() != null) {
+                names.add(category.getName());
+                byName.putIfAbsent(normalize(category.getName()), category);
+            }
+        }
+
+        return new CategoryIndex(List.copyOf(categories), Map.copyOf(byId), Map.copyOf(byName), List.copyOf(names));
+    }
+
+    // Хэш содержимого, а не файла: переформатирование JSON не меняет версию
+    private static String versionOf(List<CategoryDto> categories) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (CategoryDto category : categories) {
+                digest.update(String.valueOf(category.getId()).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(String.valueOf(category.getName()).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public static String normalize(String name) {
+        return name.trim().toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+
+    public List<CategoryDto> all() {
+        return categories;
+    }
+
+    public CategoryDto byId(String id) {
+        return id == null ? null : byId.get(id);
+    }
+
+    public CategoryDto byName(String name) {
+        return name == null ? null : byNormalizedName.get(normalize(name));
+    }
+
+    /**
+     * Категория по точному или близкому названию; null, если ничего не подошло
+     * или ближайших кандидатов несколько — в этом случае не угадываем.
+     */
+    public CategoryDto resolve(String name) {
+        if (name == null) {
+            return null;
+        }
+        CategoryDto exact = byName(name);
+        if (exact != null) {
+            return exact;
+        }
+
+        String normalized = normalize(name);
+        int maxDistance = maxDistance(normalized.length());
+        if (maxDistance == 0) {
+            return null;
+        }
+
+        List<FuzzyTrie.Match<CategoryDto>> matches = nameTrie.within(normalized, maxDistance);
+        if (matches.isEmpty()) {
+            return null;
+        }
+        if (matches.size() > 1 && matches.get(1).distance() == matches.get(0).distance()) {
+            return null;
+        }
+        return matches.get(0).value();
+    }
+
+    /**
+     * Подсказки при вводе: сначала названия, начинающиеся с запроса, затем совпадения
+     * с началом любого слова, затем близкие по написанию.
+     */
+    public List<CategoryDto> suggest(String query, int limit) {
+        String normalized = query == null ? "" : normalize(query);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Set<CategoryDto> result = new LinkedHashSet<>(nameTrie.startingWith(normalized, limit));
+        if (result.size() < limit) {
+            for (CategoryDto category : wordTrie.startingWith(normalized, limit * 2)) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                result.add(category);
+            }
+        }
+        if (result.size() < limit) {
+            for (FuzzyTrie.Match<CategoryDto> match : nameTrie.within(normalized, maxDistance(normalized.length()))) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                result.add(match.value());
+            }
+        }
+        return List.copyOf(result);
+    }
+
+    // Короткие слова не исправляем: у них одна опечатка легко даёт другую категорию
+    private static int maxDistance(int length) {
+        if (length <= 3) {
+            return 0;
+        }
+        return length <= 7 ? 1 : 2;
+    }
+
+    /**
+     * Версия справочника — используется как ETag ответов со списком категорий.
+     */
+    public String version() {
+        return version;
+    }
+
+    public List<String> names() {
+        return names;
+    }
+
+    public String promptFragment() {
+        return promptFragment;
+    }
+
+    public boolean isEmpty() {
+        return categories.isEmpty();
+    }
+
+    public int size() {
+        return categories.size();
+    }
+
+}
@@ -0,0 +1,8 @@
+package com.strollie.route.service;
+
+/**
+ * Сериализованный список категорий одной версии справочника: готовые байты JSON
+ * и их gzip-сжатие, чтобы {@code GET /api/categories} не сериализовал и не сжимал список заново.
+ */
+public record CategoryPayload(String version, byte[] json, byte[] gzip) {
+}
@@ -0,0 +1,67 @@
+package com.strollie.route.service;
+
+import com.strollie.route.config.RoutingConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Местное время города маршрута. Часы работы из 2GIS заданы в местном времени,
+ * а сервер может жить в другом поясе (в контейнере — обычно UTC).
+ */
+@Slf4j
+@Component
+public class CityClock {
+
+    private final ZoneId defaultZone;
+    private final Map<String, ZoneId> cityZones = new HashMap<>();
+
+    public CityClock(RoutingConfig config) {
+        RoutingConfig.TimeWindows settings = config.getTimeWindows();
+        this.defaultZone = ZoneId.of(settings.getDefaultZone());
+        settings.getCityZones().forEach((city, zone) -> {
+            try {
+                cityZones.put(normalize(city), ZoneId.of(zone));
+            } catch (DateTimeException e) {
+                log.warn("Invalid time zone '{}' for city '{}' ignored", zone, city);
+            }
+        });
+    }
+
+    public ZoneId zone(String city) {
+        return city != null ? cityZones.getOrDefault(normalize(city), defaultZone) : defaultZone;
+    }
+
+    /**
+     * Пояс из запроса, если он задан и корректен, иначе пояс города.
+     */
+    public ZoneId zone(String city, String requestedZone) {
+        if (requestedZone != null && !requestedZone.isBlank()) {
+            try {
+                return ZoneId.of(requestedZone.trim());
+            } catch (DateTimeException e) {
+                log.warn("Invalid time zone '{}' in request, using zone of '{}'", requestedZone, city);
+            }
+        }
+        return zone(city);
+    }
+
+    public LocalDateTime now(String city) {
+        return LocalDateTime.now(zone(city));
+    }
+
+    public LocalDateTime now(String city, String requestedZone) {
+        return LocalDateTime.now(zone(city, requestedZone));
+    }
+
+    private static String normalize(String city) {
+        return city.trim().toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+
+}
@@ -3,6 +3,7 @@ package com.strollie.route.service;
 import com.strollie.route.client.LlmApiClient;
 import com.strollie.route.model.dto.PlaceDto;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 
@@ -19,4 +20,8 @@ public class LlmFilterService {
         return llmApiClient.filterPlaces(places, userDescription, durationHours);
     }
 
+    public Mono<List<PlaceDto>> filterAndRankPlacesReactive(List<PlaceDto> places, String userDescription, int durationHours) {
+        return llmApiClient.filterPlacesReactive(places, userDescription, durationHours);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,64 @@
+package com.strollie.route.service;
+
+import com.strollie.route.model.dto.RouteResponse;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Асинхронное задание на построение маршрута. Поля меняет только рабочий поток,
+ * читают — запросы опроса.
+ */
+@Getter
+public class RouteJob {
+
+    public enum Status {QUEUED, RUNNING, DONE, FAILED}
+
+    private final String id;
+    private final Instant submittedAt = Instant.now();
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant completedAt;
+    private volatile RouteResponse result;
+    private volatile String error;
+
+    @Getter(AccessLevel.NONE)
+    private final CompletableFuture<RouteJob> completion = new CompletableFuture<>();
+
+    RouteJob(String id) {
+        this.id = id;
+    }
+
+    public boolean isFinished() {
+        return status == Status.DONE || status == Status.FAILED;
+    }
+
+    /**
+     * Завершается вместе с заданием; для long-poll.
+     */
+    public CompletableFuture<RouteJob> completion() {
+        return completion;
+    }
+
+    void start() {
+        status = Status.RUNNING;
+    }
+
+    void complete(RouteResponse response) {
+        result = response;
+        finish(Status.DONE);
+    }
+
+    void fail(String message) {
+        error = message;
+        finish(Status.FAILED);
+    }
+
+    private void finish(Status finalStatus) {
+        completedAt = Instant.now();
+        status = finalStatus;
+        completion.complete(this);
+    }
+
+}
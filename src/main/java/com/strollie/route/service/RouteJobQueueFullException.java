@@ -0,0 +1,18 @@
+package com.strollie.route.service;
+
+import lombok.Getter;
+
+/**
+ * Очередь асинхронных заданий заполнена — клиенту отвечаем 429 с Retry-After.
+ */
+@Getter
+public class RouteJobQueueFullException extends RuntimeException {
+
+    private final int retryAfterSeconds;
+
+    public RouteJobQueueFullException(int queued, int retryAfterSeconds) {
+        super("Route job queue is full (" + queued + " jobs waiting), retry later");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+}
@@ -0,0 +1,128 @@
+package com.strollie.route.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.strollie.route.config.RoutingConfig;
+import com.strollie.route.model.dto.RouteRequest;
+import com.strollie.route.model.dto.RouteResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Асинхронный режим генерации: задания выполняет пул фиксированного размера с ограниченной
+ * очередью, результаты хранятся в памяти {@code result-ttl-minutes} после завершения
+ * (до завершения задание не истекает, сколько бы ни ждало в очереди).
+ * Пропускная способность задаётся размером пула, а не числом открытых соединений клиентов.
+ */
+@Slf4j
+@Service
+public class RouteJobService {
+
+    static final String FAILURE_MESSAGE = "Не удалось построить маршрут";
+
+    private final RouteOrchestrationService orchestrationService;
+    private final RoutingConfig.Jobs settings;
+    private final ThreadPoolExecutor workers;
+    // Незавершённые задания не должны истекать или вытесняться, пока ждут в очереди;
+    // их число и так ограничено размером пула и очереди
+    private final Map<String, RouteJob> active = new ConcurrentHashMap<>();
+    private final Cache<String, RouteJob> finished;
+
+    public RouteJobService(RouteOrchestrationService orchestrationService, RoutingConfig config) {
+        this.orchestrationService = orchestrationService;
+        this.settings = config.getJobs();
+
+        int concurrency = Math.max(1, settings.getConcurrency());
+        this.workers = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, settings.getQueueCapacity())),
+                Thread.ofPlatform().name("route-job-", 0).daemon(true).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.finished = Caffeine.newBuilder()
+                .maximumSize(settings.getMaxJobs())
+                .expireAfterWrite(Duration.ofMinutes(settings.getResultTtlMinutes()))
+                .build();
+    }
+
+    /**
+     * Ставит задание в очередь.
+     *
+     * @throws RouteJobQueueFullException если очередь заполнена
+     */
+    public RouteJob submit(RouteRequest request, boolean useLlmCache) {
+        RouteJob job = new RouteJob(UUID.randomUUID().toString());
+        active.put(job.getId(), job);
+
+        try {
+            workers.execute(() -> run(job, request, useLlmCache));
+        } catch (RejectedExecutionException e) {
+            active.remove(job.getId());
+            log.warn(">>> ROUTE JOB: queue is full ({} waiting), rejecting", workers.getQueue().size());
+            throw new RouteJobQueueFullException(workers.getQueue().size(), settings.getRetryAfterSeconds());
+        }
+
+        log.info(">>> ROUTE JOB {}: queued, {} waiting, {} running",
+                job.getId(), workers.getQueue().size(), workers.getActiveCount());
+        return job;
+    }
+
+    public Optional<RouteJob> find(String id) {
+        RouteJob job = active.get(id);
+        return Optional.ofNullable(job != null ? job : finished.getIfPresent(id));
+    }
+
+    /**
+     * Long-poll: задание, как только оно завершится, но не позже чем через {@code wait}
+     * (ограничено {@code max-wait-seconds}); по истечении — в текущем состоянии.
+     */
+    public Mono<RouteJob> await(RouteJob job, Duration wait) {
+        Duration limit = Duration.ofSeconds(settings.getMaxWaitSeconds());
+        Duration timeout = wait.compareTo(limit) > 0 ? limit : wait;
+        if (job.isFinished() || timeout.isZero() || timeout.isNegative()) {
+            return Mono.just(job);
+        }
+
+        // Отмена ожидания (таймаут, обрыв соединения) не должна отменять само задание
+        return Mono.fromFuture(job.completion(), true)
+                .timeout(timeout, Mono.just(job));
+    }
+
+    private void run(RouteJob job, RouteRequest request, boolean useLlmCache) {
+        job.start();
+        long start = System.nanoTime();
+        try {
+            RouteResponse response = orchestrationService.generateRoute(request, useLlmCache);
+            job.complete(response);
+            log.info(">>> ROUTE JOB {}: done in {} ms", job.getId(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            log.error(">>> ROUTE JOB {}: failed", job.getId(), e);
+        } finally {
+            // Error летит дальше, но задание всё равно завершается, иначе висело бы в active навсегда.
+            // Текст исключения клиенту не отдаём — подробности только в логе
+            if (!job.isFinished()) {
+                job.fail(FAILURE_MESSAGE);
+            }
+            // TTL результата отсчитывается от завершения; сначала кладём в хранилище, чтобы
+            // опрос между двумя операциями не получил 404
+            finished.put(job.getId(), job);
+            active.remove(job.getId());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.strollie.route.service;
 
+import com.strollie.route.cache.LlmResponseCache;
 import com.strollie.route.client.GisApiClient;
 import com.strollie.route.client.LlmApiClient;
 import com.strollie.route.model.dto.PlaceDto;
@@ -9,8 +10,14 @@ import com.strollie.route.util.DirectionsLinkBuilder;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Slf4j
 @Service
@@ -18,88 +25,219 @@ import java.util.List;
 public class RouteOrchestrationService {
 
     private static final int DEFAULT_RADIUS_METERS = 3000;
+    private static final int MAX_CANDIDATES = 30;
     private final GisApiClient gisApiClient;
     private final LlmFilterService llmFilterService;
     private final LlmApiClient llmApiClient;
     private final TspSolverService tspSolverService;
     private final CategoryEnricherService categoryEnricherService;
+    private final CityClock cityClock;
 
     public RouteResponse generateRoute(RouteRequest request) {
-        log.info("=== ROUTE GENERATION START ===");
-        log.info("City: {}, Categories: {}, Duration: {}h",
-                request.getCity(), request.getCategories(), request.getDurationHours());
-        log.info("User description: '{}'", request.getDescription());
+        return generateRoute(request, true);
+    }
+
+    public RouteResponse generateRoute(RouteRequest request, boolean useLlmCache) {
+        return generateRouteReactive(request, useLlmCache).block();
+    }
+
+    public Mono<RouteResponse> generateRouteReactive(RouteRequest request) {
+        return generateRouteReactive(request, true);
+    }
+
+    /**
+     * @param useLlmCache false — не брать ответы LLM из кэша (клиент прислал Cache-Control: no-cache)
+     */
+    public Mono<RouteResponse> generateRouteReactive(RouteRequest request, boolean useLlmCache) {
+        Mono<RouteResponse> route = pipeline(request);
+        return useLlmCache ? route : LlmResponseCache.bypass(route);
+    }
+
+    /**
+     * Потоковая генерация: событие {@code route} с упорядоченными точками и ссылкой сразу после
+     * TSP, затем {@code description} с фрагментами текста по мере генерации и итоговое {@code done}.
+     */
+    public Flux<RouteEvent> streamRoute(RouteRequest request, boolean useLlmCache) {
+        Flux<RouteEvent> events = plan(request).flatMapMany(plan -> {
+            if (plan.places().isEmpty()) {
+                RouteResponse empty = emptyRoute();
+                return Flux.just(RouteEvent.route(empty), RouteEvent.done(empty));
+            }
+
+            log.info("Step 5/5: Streaming route description...");
+            StringBuilder description = new StringBuilder();
+            Flux<String> deltas = plan.description() != null
+                    ? Flux.just(plan.description())
+                    : llmApiClient.streamRouteDescription(plan.places(), request.getDescription());
+            return Flux.concat(
+                    Mono.just(RouteEvent.route(plan.toResponse(null))),
+                    deltas
+                            .doOnNext(description::append)
+                            .map(RouteEvent::description),
+                    Mono.fromSupplier(() -> {
+                        log.info("=== ROUTE GENERATION COMPLETE ===");
+                        return RouteEvent.done(plan.toResponse(description.toString()));
+                    }));
+        });
+        return useLlmCache ? events : LlmResponseCache.bypass(events);
+    }
+
+    private Mono<RouteResponse> pipeline(RouteRequest request) {
+        return plan(request).flatMap(plan -> plan.places().isEmpty()
+                ? Mono.just(emptyRoute())
+                : describe(request, plan));
+    }
+
+    private Mono<PlannedRoute> plan(RouteRequest request) {
+        return Mono.defer(() -> {
+            log.info("=== ROUTE GENERATION START ===");
+            log.info("City: {}, Categories: {}, Duration: {}h",
+                    request.getCity(), request.getCategories(), request.getDurationHours());
+            log.info("User description: '{}'", request.getDescription());
+
+            return fetchCandidates(request);
+        }).flatMap(candidates -> {
+            log.info("GIS returned {} candidates", candidates.size());
+
+            if (candidates.isEmpty()) {
+                log.warn("No candidates found. Returning empty route.");
+                return Mono.just(PlannedRoute.EMPTY);
+            }
+
+            return orderRoute(request, candidates);
+        });
+    }
+
+    /**
+     * Steps 1-2: поиск по исходным категориям не зависит от обогащения, поэтому запускается
+     * одновременно с вызовом LLM; после обогащения ищутся только добавленные категории.
+     */
+    private Mono<List<PlaceDto>> fetchCandidates(RouteRequest request) {
+        List<String> original = request.getCategories() != null ? request.getCategories() : List.of();
+        double lat = request.getStartPoint().getLat();
+        double lon = request.getStartPoint().getLon();
 
         // Step 1: Обогащение категорий на основе описания пользователя
         log.info("Step 1/5: Enriching categories based on user description...");
-        List<String> enrichedCategories = categoryEnricherService.enrichCategories(
-                request.getCategories(),
+        Mono<List<String>> enrichment = categoryEnricherService.enrichCategoriesReactive(
+                original,
                 request.getDescription(),
                 request.getCity()
-        );
-        log.info("Categories after enrichment: {}", enrichedCategories);
+        ).doOnNext(enrichedCategories -> log.info("Categories after enrichment: {}", enrichedCategories));
 
-        // Step 2: Поиск мест в GIS
-        log.info("Step 2/5: Fetching places from GIS...");
-        List<PlaceDto> candidates = gisApiClient.searchPlaces(
-                request.getCity(),
-                enrichedCategories,
-                request.getStartPoint().getLat(),
-                request.getStartPoint().getLon(),
-                DEFAULT_RADIUS_METERS,
-                30
-        );
-        log.info("GIS returned {} candidates", candidates.size());
-
-        if (candidates.isEmpty()) {
-            log.warn("No candidates found. Returning empty route.");
-            return emptyRoute();
+        if (original.isEmpty()) {
+            // Step 2: Поиск мест в GIS — без исходных категорий забегать вперёд нечем
+            return enrichment.flatMap(enrichedCategories -> {
+                log.info("Step 2/5: Fetching places from GIS...");
+                return gisApiClient.searchPlacesReactive(request.getCity(), enrichedCategories,
+                        lat, lon, DEFAULT_RADIUS_METERS, MAX_CANDIDATES);
+            });
         }
 
+        // Step 2: Поиск мест в GIS
+        log.info("Step 2/5: Fetching places from GIS for original categories in parallel with enrichment...");
+        Mono<List<List<PlaceDto>>> base = gisApiClient.searchEachCategoryReactive(request.getCity(), original,
+                lat, lon, DEFAULT_RADIUS_METERS, gisApiClient.limitPerCategory(original.size(), MAX_CANDIDATES));
+
+        Mono<Expansion> expansion = enrichment.flatMap(enrichedCategories -> {
+            Set<String> known = new HashSet<>();
+            original.forEach(category -> known.add(category.toLowerCase().trim()));
+            List<String> added = enrichedCategories.stream()
+                    .filter(category -> !known.contains(category.toLowerCase().trim()))
+                    .toList();
+            int limitPerCategory = gisApiClient.limitPerCategory(original.size() + added.size(), MAX_CANDIDATES);
+
+            if (!added.isEmpty()) {
+                log.info("Fetching places from GIS for added categories: {}", added);
+            }
+            return gisApiClient.searchEachCategoryReactive(request.getCity(), added,
+                            lat, lon, DEFAULT_RADIUS_METERS, limitPerCategory)
+                    .map(places -> new Expansion(places, limitPerCategory));
+        });
+
+        // zip подписывается на оба источника сразу — поиск по исходным категориям идёт, пока думает LLM
+        return Mono.zip(base, expansion, (basePlaces, extra) -> {
+            List<List<PlaceDto>> perCategory = new ArrayList<>(basePlaces);
+            perCategory.addAll(extra.places());
+            return GisApiClient.mergeBalanced(perCategory, extra.limitPerCategory(), MAX_CANDIDATES);
+        });
+    }
+
+    private Mono<PlannedRoute> orderRoute(RouteRequest request, List<PlaceDto> candidates) {
         // Step 3: LLM фильтрация
         log.info("Step 3/5: LLM filtering {} candidates...", candidates.size());
-        List<PlaceDto> filtered = llmFilterService.filterAndRankPlaces(
+        return selectPlaces(request, candidates).map(selection -> {
+            List<PlaceDto> filtered = selection.places();
+            log.info("After LLM filter: {} places", filtered.size());
+
+            List<PlaceDto> selected = filtered.isEmpty()
+                    ? selectByRating(candidates, request.getDurationHours())
+                    : filtered;
+
+            // Step 4: TSP оптимизация
+            log.info("Step 4/5: Optimizing route order (TSP)...");
+            PlaceDto start = createStartPoint(request);
+            TspSolverService.Solution solution = tspSolverService.solve(
+                    start, selected, cityClock.now(request.getCity(), request.getTimeZone()), request.getDurationHours());
+            List<PlaceDto> ordered = solution.route();
+            log.info("Route optimized: {} points, {} m (saved {} m vs greedy)",
+                    ordered.size(), Math.round(solution.distanceMeters()), Math.round(solution.savedMeters()));
+
+            if (!solution.unreachable().isEmpty()) {
+                log.info("Skipped {} places closed or out of time budget: {}", solution.unreachable().size(),
+                        solution.unreachable().stream().map(PlaceDto::getName).toList());
+            }
+
+            // При отборе по рейтингу заготовка описания относится к другим местам
+            String description = filtered.isEmpty() ? null : selection.describe(ordered);
+            return new PlannedRoute(ordered, DirectionsLinkBuilder.build2GisLink(request.getCity(), ordered), description);
+        });
+    }
+
+    private Mono<LlmApiClient.RouteSelection> selectPlaces(RouteRequest request, List<PlaceDto> candidates) {
+        if (llmApiClient.isCombinedMode()) {
+            return llmApiClient.selectWithDescriptionReactive(
+                    candidates, request.getDescription(), request.getDurationHours());
+        }
+
+        return llmFilterService.filterAndRankPlacesReactive(
                 candidates,
                 request.getDescription(),
                 request.getDurationHours()
-        );
-        log.info("After LLM filter: {} places", filtered.size());
-
-        if (filtered.isEmpty()) {
-            log.warn("LLM returned 0 results, using candidates sorted by rating as fallback");
-            filtered = candidates.stream()
-                    .sorted((a, b) -> {
-                        Double ra = a.getRating();
-                        Double rb = b.getRating();
-                        if (ra == null && rb == null) return 0;
-                        if (ra == null) return 1;
-                        if (rb == null) return -1;
-                        return rb.compareTo(ra);
-                    })
-                    .limit(calculateTargetPlaces(request.getDurationHours()))
-                    .toList();
-            log.info("Fallback selected {} places", filtered.size());
-        }
+        ).map(filtered -> new LlmApiClient.RouteSelection(filtered, null, Map.of()));
+    }
 
-        // Step 4: TSP оптимизация
-        log.info("Step 4/5: Optimizing route order (TSP)...");
-        PlaceDto start = createStartPoint(request);
-        List<PlaceDto> ordered = tspSolverService.optimizeRoute(start, filtered);
-        log.info("Route optimized: {} points", ordered.size());
+    private Mono<RouteResponse> describe(RouteRequest request, PlannedRoute plan) {
+        if (plan.description() != null) {
+            log.info("Step 5/5: Description assembled from combined LLM answer");
+            log.info("=== ROUTE GENERATION COMPLETE ===");
+            return Mono.just(plan.toResponse(plan.description()));
+        }
 
         // Step 5: Генерация описания
         log.info("Step 5/5: Generating route description...");
-        String description = llmApiClient.generateRouteDescription(ordered, request.getDescription());
-
-        String url = DirectionsLinkBuilder.build2GisLink(request.getCity(), ordered);
-
-        log.info("=== ROUTE GENERATION COMPLETE ===");
+        return llmApiClient.generateRouteDescriptionReactive(plan.places(), request.getDescription())
+                .map(description -> {
+                    log.info("=== ROUTE GENERATION COMPLETE ===");
+                    return plan.toResponse(description);
+                });
+    }
 
-        return RouteResponse.builder()
-                .places(ordered)
-                .description(description)
-                .directionsUrl(url)
-                .build();
+    private List<PlaceDto> selectByRating(List<PlaceDto> candidates, int durationHours) {
+        log.warn("LLM returned 0 results, using candidates sorted by rating as fallback");
+        List<PlaceDto> selected = candidates.stream()
+                .sorted((a, b) -> {
+                    Double ra = a.getRating();
+                    Double rb = b.getRating();
+                    if (ra == null && rb == null) return 0;
+                    if (ra == null) return 1;
+                    if (rb == null) return -1;
+                    return rb.compareTo(ra);
+                })
+                .limit(calculateTargetPlaces(durationHours))
+                .toList();
+        log.info("Fallback selected {} places", selected.size());
+        return selected;
     }
 
     private int calculateTargetPlaces(int durationHours) {
@@ -124,4 +262,45 @@ public class RouteOrchestrationService {
                 .build();
     }
 
-}
\ No newline at end of file
+    /**
+     * Маршрут после TSP; пустой список точек — маршрут не построен. {@code description} заполнено
+     * только в комбинированном режиме LLM, иначе описание генерируется отдельно.
+     */
+    private record PlannedRoute(List<PlaceDto> places, String directionsUrl, String description) {
+
+        static final PlannedRoute EMPTY = new PlannedRoute(List.of(), null, null);
+
+        RouteResponse toResponse(String description) {
+            return RouteResponse.builder()
+                    .places(places)
+                    .description(description)
+                    .directionsUrl(directionsUrl)
+                    .build();
+        }
+    }
+
+    /**
+     * Результаты по добавленным категориям и лимит на категорию с учётом их итогового числа.
+     */
+    private record Expansion(List<List<PlaceDto>> places, int limitPerCategory) {
+    }
+
+    /**
+     * Событие потоковой генерации: имя SSE-события и его данные.
+     */
+    public record RouteEvent(String name, Object data) {
+
+        static RouteEvent route(RouteResponse route) {
+            return new RouteEvent("route", route);
+        }
+
+        static RouteEvent description(String delta) {
+            return new RouteEvent("description", Map.of("delta", delta));
+        }
+
+        static RouteEvent done(RouteResponse route) {
+            return new RouteEvent("done", route);
+        }
+    }
+
+}
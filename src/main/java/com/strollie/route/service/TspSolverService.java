@@ -1,40 +1,261 @@
 package com.strollie.route.service;
 
+import com.strollie.route.config.RoutingConfig;
 import com.strollie.route.model.dto.PlaceDto;
+import com.strollie.route.model.schedule.WeeklySchedule;
+import com.strollie.route.service.tsp.DistanceMatrix;
+import com.strollie.route.service.tsp.HeldKarpSolver;
+import com.strollie.route.service.tsp.TimeWindowProblem;
+import com.strollie.route.service.tsp.TimeWindowSolver;
+import com.strollie.route.service.tsp.TourImprover;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.util.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+@Slf4j
 @Service
+@RequiredArgsConstructor
 public class TspSolverService {
 
+    private final RoutingConfig routingConfig;
+    private final List<TourImprover> availableImprovers;
+    private List<TourImprover> improvers = List.of();
+    // Порог точного решателя из конфигурации, ограниченный возможностями HeldKarpSolver
+    private int exactMaxPlaces;
+
+    @PostConstruct
+    public void init() {
+        List<TourImprover> selected = new ArrayList<>();
+        for (String name : routingConfig.getTsp().getImprovers()) {
+            availableImprovers.stream()
+                    .filter(i -> i.name().equalsIgnoreCase(name.trim()))
+                    .findFirst()
+                    .ifPresentOrElse(selected::add,
+                            () -> log.warn("Unknown TSP improver '{}' ignored", name));
+        }
+        improvers = List.copyOf(selected);
+
+        int configured = routingConfig.getTsp().getExactMaxPlaces();
+        exactMaxPlaces = Math.min(configured, HeldKarpSolver.MAX_PLACES);
+        if (configured > exactMaxPlaces) {
+            log.warn("routing.tsp.exact-max-places={} exceeds {}, capping", configured, HeldKarpSolver.MAX_PLACES);
+        }
+        log.info("TSP: exact solver up to {} places, improvement stages above: {}",
+                exactMaxPlaces, improvers.stream().map(TourImprover::name).toList());
+    }
+
     public List<PlaceDto> optimizeRoute(PlaceDto startPoint, List<PlaceDto> places) {
-        List<PlaceDto> route = new ArrayList<>();
-        route.add(startPoint);
-        Set<PlaceDto> unvisited = new HashSet<>(places);
-        PlaceDto current = startPoint;
-        while (!unvisited.isEmpty()) {
-            PlaceDto c = current;
-            PlaceDto nearest = unvisited.stream()
-                    .min(Comparator.comparingDouble(p -> distanceMeters(c, p)))
-                    .orElseThrow();
-            route.add(nearest);
-            unvisited.remove(nearest);
-            current = nearest;
+        return solve(startPoint, places).route();
+    }
+
+    public Solution solve(PlaceDto startPoint, List<PlaceDto> places) {
+        List<PlaceDto> points = withStart(startPoint, places);
+        DistanceMatrix distances = DistanceMatrix.of(points);
+        boolean openPath = routingConfig.getTsp().isOpenPath();
+
+        int[] tour = nearestNeighbourTour(distances);
+        double initialLength = tourLength(tour, distances, openPath);
+
+        // Маленькие маршруты решаем точно, большие — жадно с локальным поиском
+        boolean exact = places.size() <= exactMaxPlaces;
+        String engine;
+        if (exact) {
+            tour = HeldKarpSolver.solve(distances, openPath);
+            engine = "exact";
+        } else {
+            int passes = improve(tour, distances, openPath);
+            engine = "heuristic (" + passes + " passes)";
+        }
+        double length = tourLength(tour, distances, openPath);
+
+        Solution solution = new Solution(toRoute(tour, points), initialLength, length, exact, List.of());
+        log.info("TSP: {} stops, greedy {} m -> {} m by {} (saved {} m, {}%)",
+                places.size(), Math.round(initialLength), Math.round(length), engine,
+                Math.round(solution.savedMeters()), Math.round(solution.savedPercent()));
+        return solution;
+    }
+
+    /**
+     * Порядок обхода с учетом часов работы мест: выход в {@code departure}, прогулка
+     * {@code durationHours}. Берётся кратчайший обход; если в нём какое-то место окажется закрыто
+     * к приходу, порядок перестраивается так, чтобы успеть в как можно большее число мест, а
+     * остальные попадают в {@link Solution#unreachable()}. Число мест уже подобрано под
+     * длительность прогулки, поэтому бюджет времени не меньше, чем нужно на сам кратчайший обход:
+     * места отбрасываются только из-за часов работы. Если не успеть ни в одно, остаётся кратчайший
+     * обход. При выключенных временных окнах — обычный {@link #solve}.
+     */
+    public Solution solve(PlaceDto startPoint, List<PlaceDto> places, LocalDateTime departure, int durationHours) {
+        RoutingConfig.TimeWindows timeWindows = routingConfig.getTimeWindows();
+        if (!timeWindows.isEnabled() || places.isEmpty()) {
+            return solve(startPoint, places);
+        }
+
+        List<PlaceDto> points = withStart(startPoint, places);
+        DistanceMatrix distances = DistanceMatrix.of(points);
+        boolean openPath = routingConfig.getTsp().isOpenPath();
+
+        int[] greedy = nearestNeighbourTour(distances);
+        double initialLength = tourLength(greedy, distances, openPath);
+
+        boolean exact = places.size() <= exactMaxPlaces;
+        int[] shortest;
+        if (exact) {
+            shortest = HeldKarpSolver.solve(distances, openPath);
+        } else {
+            improve(greedy, distances, openPath);
+            shortest = greedy;
+        }
+
+        WeeklySchedule[] schedules = new WeeklySchedule[points.size()];
+        for (int i = 1; i < points.size(); i++) {
+            schedules[i] = points.get(i).getSchedule();
+        }
+        int budgetMinutes = Math.max(durationHours * 60, plannedMinutes(shortest, distances, openPath, timeWindows));
+        TimeWindowProblem problem = TimeWindowProblem.of(distances, schedules,
+                WeeklySchedule.minuteOfWeek(departure), budgetMinutes, timeWindows.getVisitMinutes(),
+                timeWindows.getWalkingMetersPerMinute(), openPath);
+
+        int[] tour = TimeWindowSolver.dropUnreachable(shortest, problem);
+        if (tour.length < shortest.length && exact) {
+            // Кто-то закрыт к приходу — теперь важно и ожидание открытия, порядок подбирается по расписаниям
+            int[] scheduled = TimeWindowSolver.solveExact(problem);
+            if (scheduled.length >= tour.length) {
+                tour = scheduled;
+            }
+        }
+        if (tour.length == 1) {
+            log.warn("TSP with time windows: none of {} stops is open on the way, keeping the shortest tour",
+                    places.size());
+            tour = shortest;
+        }
+        double length = tourLength(tour, distances, openPath);
+
+        boolean[] visited = new boolean[points.size()];
+        for (int index : tour) {
+            visited[index] = true;
+        }
+        List<PlaceDto> unreachable = new ArrayList<>();
+        for (int i = 1; i < points.size(); i++) {
+            if (!visited[i]) {
+                unreachable.add(points.get(i));
+            }
+        }
+
+        log.info("TSP with time windows: {} of {} stops open on the way from {} ({}), {} m",
+                tour.length - 1, places.size(), departure, exact ? "exact" : "heuristic", Math.round(length));
+        return new Solution(toRoute(tour, points), initialLength, length, exact, unreachable);
+    }
+
+    /**
+     * Сколько минут займёт обход без ожидания открытия: ходьба и визиты, для замкнутого
+     * маршрута — вместе с возвращением. Округление то же, что в {@link TimeWindowProblem}.
+     */
+    private int plannedMinutes(int[] tour, DistanceMatrix distances, boolean openPath,
+                               RoutingConfig.TimeWindows timeWindows) {
+        double speed = timeWindows.getWalkingMetersPerMinute();
+        int minutes = (tour.length - 1) * timeWindows.getVisitMinutes();
+        for (int i = 1; i < tour.length; i++) {
+            minutes += (int) Math.ceil(distances.between(tour[i - 1], tour[i]) / speed);
+        }
+        if (!openPath && tour.length > 1) {
+            minutes += (int) Math.ceil(distances.between(tour[tour.length - 1], tour[0]) / speed);
+        }
+        return minutes;
+    }
+
+    private List<PlaceDto> withStart(PlaceDto startPoint, List<PlaceDto> places) {
+        List<PlaceDto> points = new ArrayList<>(places.size() + 1);
+        points.add(startPoint);
+        points.addAll(places);
+        return points;
+    }
+
+    private List<PlaceDto> toRoute(int[] tour, List<PlaceDto> points) {
+        List<PlaceDto> route = new ArrayList<>(tour.length);
+        for (int index : tour) {
+            route.add(points.get(index));
         }
         return route;
     }
 
-    private double distanceMeters(PlaceDto a, PlaceDto b) {
-        double lat1 = Math.toRadians(a.getLat());
-        double lat2 = Math.toRadians(b.getLat());
-        double dLat = lat2 - lat1;
-        double dLon = Math.toRadians(b.getLon() - a.getLon());
-        double sinLat = Math.sin(dLat / 2);
-        double sinLon = Math.sin(dLon / 2);
-        double h = sinLat * sinLat + Math.cos(lat1) * Math.cos(lat2) * sinLon * sinLon;
-        double c = 2 * Math.atan2(Math.sqrt(h), Math.sqrt(1 - h));
-        return 6371000.0 * c;
+    private int[] nearestNeighbourTour(DistanceMatrix distances) {
+        int n = distances.size();
+        int[] tour = new int[n];
+        boolean[] visited = new boolean[n];
+        visited[0] = true;
+
+        int current = 0;
+        for (int position = 1; position < n; position++) {
+            int nearest = -1;
+            double best = Double.MAX_VALUE;
+            for (int candidate = 1; candidate < n; candidate++) {
+                if (!visited[candidate]) {
+                    double d = distances.between(current, candidate);
+                    if (d < best) {
+                        best = d;
+                        nearest = candidate;
+                    }
+                }
+            }
+            tour[position] = nearest;
+            visited[nearest] = true;
+            current = nearest;
+        }
+        return tour;
+    }
+
+    private int improve(int[] tour, DistanceMatrix distances, boolean openPath) {
+        if (improvers.isEmpty() || tour.length < 3) {
+            return 0;
+        }
+
+        RoutingConfig.Tsp tsp = routingConfig.getTsp();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(tsp.getTimeBudgetMillis());
+
+        int passes = 0;
+        boolean improved = true;
+        while (improved && passes < tsp.getMaxIterations() && System.nanoTime() < deadline) {
+            improved = false;
+            for (TourImprover improver : improvers) {
+                improved |= improver.improve(tour, distances, openPath);
+            }
+            passes++;
+        }
+        return passes;
+    }
+
+    private double tourLength(int[] tour, DistanceMatrix distances, boolean openPath) {
+        double length = 0;
+        for (int i = 1; i < tour.length; i++) {
+            length += distances.between(tour[i - 1], tour[i]);
+        }
+        if (!openPath && tour.length > 1) {
+            length += distances.between(tour[tour.length - 1], tour[0]);
+        }
+        return length;
+    }
+
+    /**
+     * Результат оптимизации: порядок обхода (первая точка — старт), длина жадного обхода
+     * и итоговая длина; {@code exact} — порядок найден точным решателем,
+     * {@code unreachable} — места, исключенные из-за часов работы или длительности прогулки.
+     */
+    public record Solution(List<PlaceDto> route, double initialDistanceMeters, double distanceMeters,
+                           boolean exact, List<PlaceDto> unreachable) {
+
+        public double savedMeters() {
+            return initialDistanceMeters - distanceMeters;
+        }
+
+        public double savedPercent() {
+            return initialDistanceMeters == 0 ? 0 : savedMeters() * 100 / initialDistanceMeters;
+        }
     }
 
-}
\ No newline at end of file
+}
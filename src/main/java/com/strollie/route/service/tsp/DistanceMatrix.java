@@ -0,0 +1,65 @@
+package com.strollie.route.service.tsp;
+
+import com.strollie.route.model.dto.PlaceDto;
+
+import java.util.List;
+
+/**
+ * Матрица попарных расстояний (в метрах), посчитанная один раз на запрос и хранящаяся
+ * в плоском массиве {@code double[n * n]}. Индекс 0 — стартовая точка.
+ * <p>
+ * Для расстояний в пределах города используется равнопромежуточная (equirectangular)
+ * проекция относительно средней широты: одна {@code cos} на весь запрос вместо
+ * тригонометрии haversine на каждую пару. На дистанциях в несколько километров
+ * расхождение с haversine — доли процента, порядок обхода от этого не меняется.
+ */
+public final class DistanceMatrix {
+
+    private static final double EARTH_RADIUS_METERS = 6371000.0;
+
+    private final int size;
+    private final double[] distances;
+
+    private DistanceMatrix(int size, double[] distances) {
+        this.size = size;
+        this.distances = distances;
+    }
+
+    public static DistanceMatrix of(List<PlaceDto> points) {
+        int n = points.size();
+        double meanLat = 0;
+        for (PlaceDto p : points) {
+            meanLat += p.getLat();
+        }
+        double cosLat = Math.cos(Math.toRadians(n == 0 ? 0 : meanLat / n));
+
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            PlaceDto p = points.get(i);
+            x[i] = Math.toRadians(p.getLon()) * cosLat * EARTH_RADIUS_METERS;
+            y[i] = Math.toRadians(p.getLat()) * EARTH_RADIUS_METERS;
+        }
+
+        double[] distances = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                double dx = x[i] - x[j];
+                double dy = y[i] - y[j];
+                double d = Math.sqrt(dx * dx + dy * dy);
+                distances[i * n + j] = d;
+                distances[j * n + i] = d;
+            }
+        }
+        return new DistanceMatrix(n, distances);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double between(int from, int to) {
+        return distances[from * size + to];
+    }
+
+}
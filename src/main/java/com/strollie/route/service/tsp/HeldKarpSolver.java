@@ -0,0 +1,93 @@
+package com.strollie.route.service.tsp;
+
+/**
+ * Точное решение TSP динамическим программированием по подмножествам (Held–Karp)
+ * для маршрутов из небольшого числа точек. Старт зафиксирован в индексе 0.
+ * <p>
+ * Состояние — (маска посещенных точек, последняя точка); время O(2^m · m^2), память O(2^m · m),
+ * где m = n - 1. При m ≤ 12 это десятки тысяч состояний в примитивных массивах.
+ */
+public final class HeldKarpSolver {
+
+    // 2^16 · 16 состояний — уже ~9 МБ на запрос; дальше точный перебор не имеет смысла
+    public static final int MAX_PLACES = 16;
+
+    private HeldKarpSolver() {
+    }
+
+    public static int[] solve(DistanceMatrix distances, boolean openPath) {
+        int n = distances.size();
+        int[] tour = new int[n];
+        if (n <= 2) {
+            for (int i = 0; i < n; i++) {
+                tour[i] = i;
+            }
+            return tour;
+        }
+
+        int m = n - 1;
+        if (m > MAX_PLACES) {
+            throw new IllegalArgumentException("Held-Karp supports at most " + MAX_PLACES + " places, got " + m);
+        }
+
+        // Локальная копия расстояний между местами (без старта): d[j * m + k]
+        double[] d = new double[m * m];
+        for (int j = 0; j < m; j++) {
+            for (int k = 0; k < m; k++) {
+                d[j * m + k] = distances.between(j + 1, k + 1);
+            }
+        }
+
+        int full = 1 << m;
+        double[] cost = new double[full * m];
+        byte[] parent = new byte[full * m];
+
+        // cost[mask * m + k] — кратчайший путь из старта через все места mask, заканчивающийся в k.
+        // Считаем «вытягиванием»: строка mask читает только строку mask без k, что дружелюбнее к кэшу.
+        for (int mask = 1; mask < full; mask++) {
+            int base = mask * m;
+            for (int bits = mask; bits != 0; bits &= bits - 1) {
+                int k = Integer.numberOfTrailingZeros(bits);
+                int previousMask = mask & ~(1 << k);
+                if (previousMask == 0) {
+                    cost[base + k] = distances.between(0, k + 1);
+                    continue;
+                }
+
+                int previousBase = previousMask * m;
+                double best = Double.MAX_VALUE;
+                int bestJ = 0;
+                for (int rest = previousMask; rest != 0; rest &= rest - 1) {
+                    int j = Integer.numberOfTrailingZeros(rest);
+                    double candidate = cost[previousBase + j] + d[j * m + k];
+                    if (candidate < best) {
+                        best = candidate;
+                        bestJ = j;
+                    }
+                }
+                cost[base + k] = best;
+                parent[base + k] = (byte) bestJ;
+            }
+        }
+
+        int mask = full - 1;
+        int last = 0;
+        double best = Double.MAX_VALUE;
+        for (int j = 0; j < m; j++) {
+            double total = cost[mask * m + j] + (openPath ? 0 : distances.between(j + 1, 0));
+            if (total < best) {
+                best = total;
+                last = j;
+            }
+        }
+
+        for (int position = n - 1; position >= 1; position--) {
+            tour[position] = last + 1;
+            int previous = parent[mask * m + last];
+            mask &= ~(1 << last);
+            last = previous;
+        }
+        return tour;
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.strollie.route.service.tsp;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Or-opt: переносит участок из 1–3 подряд идущих точек (в прямом или обратном порядке)
+ * в другое место тура, если это сокращает путь.
+ */
+@Component
+public class OrOptImprover implements TourImprover {
+
+    private static final double EPSILON = 1e-6;
+    private static final int MAX_SEGMENT_LENGTH = 3;
+
+    @Override
+    public String name() {
+        return "or-opt";
+    }
+
+    @Override
+    public boolean improve(int[] tour, DistanceMatrix distances, boolean openPath) {
+        int n = tour.length;
+        boolean improved = false;
+
+        for (int length = 1; length <= MAX_SEGMENT_LENGTH; length++) {
+            for (int i = 1; i + length <= n; i++) {
+                if (tryMove(tour, i, length, distances, openPath)) {
+                    improved = true;
+                }
+            }
+        }
+        return improved;
+    }
+
+    private boolean tryMove(int[] tour, int i, int length, DistanceMatrix distances, boolean openPath) {
+        int n = tour.length;
+        int end = i + length - 1;
+        int first = tour[i];
+        int last = tour[end];
+        int prev = tour[i - 1];
+
+        // Выигрыш от удаления участка: рёбра prev→first и last→next заменяются на prev→next
+        double removeGain = distances.between(prev, first);
+        if (end + 1 < n || !openPath) {
+            int next = end + 1 < n ? tour[end + 1] : tour[0];
+            removeGain += distances.between(last, next) - distances.between(prev, next);
+        }
+
+        for (int k = 0; k < n; k++) {
+            // Рёбра, касающиеся самого участка, не рассматриваем
+            if (k >= i - 1 && k <= end) {
+                continue;
+            }
+
+            int p = tour[k];
+            boolean hasQ = k + 1 < n || !openPath;
+            int q = k + 1 < n ? tour[k + 1] : tour[0];
+            double pq = hasQ ? distances.between(p, q) : 0;
+
+            double forward = distances.between(p, first) + (hasQ ? distances.between(last, q) : 0) - pq;
+            double reversed = length > 1
+                    ? distances.between(p, last) + (hasQ ? distances.between(first, q) : 0) - pq
+                    : Double.MAX_VALUE;
+
+            if (Math.min(forward, reversed) < removeGain - EPSILON) {
+                TourMoves.moveSegment(tour, i, end, k, reversed < forward);
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
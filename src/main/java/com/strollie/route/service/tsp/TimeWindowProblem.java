@@ -0,0 +1,81 @@
+package com.strollie.route.service.tsp;
+
+import com.strollie.route.model.schedule.WeeklySchedule;
+
+/**
+ * Маршрут с временными окнами: время пешком между точками, расписания мест и общий
+ * бюджет прогулки. Все моменты — абсолютные минуты от начала недели выезда.
+ * Место без расписания считается доступным в любое время.
+ */
+public final class TimeWindowProblem {
+
+    private final int size;
+    private final int[] travelMinutes;
+    private final WeeklySchedule[] schedules;
+    private final int departure;
+    private final int deadline;
+    private final int visitMinutes;
+    private final boolean openPath;
+
+    private TimeWindowProblem(int size, int[] travelMinutes, WeeklySchedule[] schedules,
+                              int departure, int deadline, int visitMinutes, boolean openPath) {
+        this.size = size;
+        this.travelMinutes = travelMinutes;
+        this.schedules = schedules;
+        this.departure = departure;
+        this.deadline = deadline;
+        this.visitMinutes = visitMinutes;
+        this.openPath = openPath;
+    }
+
+    /**
+     * @param schedules расписание для каждой точки матрицы; schedules[0] (старт) игнорируется
+     */
+    public static TimeWindowProblem of(DistanceMatrix distances, WeeklySchedule[] schedules,
+                                       int departure, int durationMinutes, int visitMinutes,
+                                       double walkingMetersPerMinute, boolean openPath) {
+        int n = distances.size();
+        int[] travel = new int[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                travel[i * n + j] = (int) Math.ceil(distances.between(i, j) / walkingMetersPerMinute);
+            }
+        }
+        return new TimeWindowProblem(n, travel, schedules, departure, departure + durationMinutes,
+                visitMinutes, openPath);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int departure() {
+        return departure;
+    }
+
+    /**
+     * Момент окончания визита в {@code to}, если выйти из {@code from} в {@code leaveAt}
+     * (с ожиданием открытия, если пришли раньше); -1, если визит не укладывается в часы работы
+     * или в общий бюджет прогулки (для замкнутого маршрута — вместе с возвращением в старт).
+     */
+    public int visit(int from, int to, int leaveAt) {
+        int arrival = leaveAt + travelMinutes[from * size + to];
+        WeeklySchedule schedule = schedules[to];
+        int start = schedule == null ? arrival : schedule.earliestVisitStart(arrival, visitMinutes);
+        if (start < 0) {
+            return -1;
+        }
+
+        int finish = start + visitMinutes;
+        return end(to, finish) <= deadline ? finish : -1;
+    }
+
+    /**
+     * Момент окончания прогулки, если последний визит — в {@code last} и закончился в {@code finish}:
+     * для замкнутого маршрута — после возвращения в старт.
+     */
+    public int end(int last, int finish) {
+        return openPath ? finish : finish + travelMinutes[last * size];
+    }
+
+}
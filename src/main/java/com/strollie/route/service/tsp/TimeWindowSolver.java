@@ -0,0 +1,111 @@
+package com.strollie.route.service.tsp;
+
+import java.util.Arrays;
+
+/**
+ * Построение маршрута с учетом часов работы мест и длительности прогулки.
+ * Места, которые нельзя посетить вовремя, в маршрут не попадают.
+ */
+public final class TimeWindowSolver {
+
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private TimeWindowSolver() {
+    }
+
+    /**
+     * Точное решение для малых маршрутов: DP по подмножествам, где состояние (маска, последняя точка)
+     * хранит самое раннее время окончания визита. Так как ждать открытия разрешено, более раннее
+     * окончание никогда не хуже более позднего, и одного значения на состояние достаточно.
+     * Выбирается маршрут с максимальным числом мест, при равенстве — заканчивающийся раньше
+     * (для замкнутого маршрута — с учетом возвращения в старт).
+     */
+    public static int[] solveExact(TimeWindowProblem problem) {
+        int n = problem.size();
+        int m = n - 1;
+        if (m <= 0) {
+            return new int[]{0};
+        }
+        if (m > HeldKarpSolver.MAX_PLACES) {
+            throw new IllegalArgumentException("Time-window DP supports at most " + HeldKarpSolver.MAX_PLACES
+                    + " places, got " + m);
+        }
+
+        int full = 1 << m;
+        int[] finish = new int[full * m];
+        byte[] parent = new byte[full * m];
+        Arrays.fill(finish, UNREACHABLE);
+
+        for (int k = 0; k < m; k++) {
+            int f = problem.visit(0, k + 1, problem.departure());
+            if (f >= 0) {
+                finish[(1 << k) * m + k] = f;
+            }
+        }
+
+        int bestMask = 0;
+        int bestLast = -1;
+        int bestFinish = UNREACHABLE;
+
+        for (int mask = 1; mask < full; mask++) {
+            int base = mask * m;
+            for (int bits = mask; bits != 0; bits &= bits - 1) {
+                int j = Integer.numberOfTrailingZeros(bits);
+                int current = finish[base + j];
+                if (current == UNREACHABLE) {
+                    continue;
+                }
+
+                int count = Integer.bitCount(mask);
+                int bestCount = Integer.bitCount(bestMask);
+                int end = problem.end(j + 1, current);
+                if (count > bestCount || count == bestCount && end < bestFinish) {
+                    bestMask = mask;
+                    bestLast = j;
+                    bestFinish = end;
+                }
+
+                for (int free = ~mask & (full - 1); free != 0; free &= free - 1) {
+                    int k = Integer.numberOfTrailingZeros(free);
+                    int f = problem.visit(j + 1, k + 1, current);
+                    int index = (mask | (1 << k)) * m + k;
+                    if (f >= 0 && f < finish[index]) {
+                        finish[index] = f;
+                        parent[index] = (byte) j;
+                    }
+                }
+            }
+        }
+
+        int[] tour = new int[Integer.bitCount(bestMask) + 1];
+        int mask = bestMask;
+        int last = bestLast;
+        for (int position = tour.length - 1; position >= 1; position--) {
+            tour[position] = last + 1;
+            int previous = parent[mask * m + last];
+            mask &= ~(1 << last);
+            last = previous;
+        }
+        return tour;
+    }
+
+    /**
+     * Для больших маршрутов: проходит готовый порядок и пропускает места, в которые
+     * уже не успеть (закрыты к моменту прихода или выходят за бюджет прогулки).
+     */
+    public static int[] dropUnreachable(int[] tour, TimeWindowProblem problem) {
+        int[] kept = new int[tour.length];
+        int count = 1;
+        int time = problem.departure();
+
+        for (int i = 1; i < tour.length; i++) {
+            int f = problem.visit(kept[count - 1], tour[i], time);
+            if (f >= 0) {
+                kept[count++] = tour[i];
+                time = f;
+            }
+        }
+        return Arrays.copyOf(kept, count);
+    }
+
+}
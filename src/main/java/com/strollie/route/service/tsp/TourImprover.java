@@ -0,0 +1,24 @@
+package com.strollie.route.service.tsp;
+
+/**
+ * Стадия локального поиска, улучшающая уже построенный тур.
+ * <p>
+ * Тур — перестановка индексов точек, tour[0] всегда стартовая точка и не перемещается.
+ * Реализации меняют массив на месте и не должны ухудшать длину тура.
+ */
+public interface TourImprover {
+
+    /**
+     * Имя стадии для конфигурации {@code routing.tsp.improvers}.
+     */
+    String name();
+
+    /**
+     * Один проход по всем ходам окрестности.
+     *
+     * @param openPath true — ребро из последней точки обратно в старт не учитывается
+     * @return true, если тур стал короче
+     */
+    boolean improve(int[] tour, DistanceMatrix distances, boolean openPath);
+
+}
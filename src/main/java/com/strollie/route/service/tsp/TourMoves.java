@@ -0,0 +1,44 @@
+package com.strollie.route.service.tsp;
+
+/**
+ * Операции над туром, выполняемые на месте без выделения памяти.
+ */
+final class TourMoves {
+
+    private TourMoves() {
+    }
+
+    static void reverse(int[] tour, int from, int to) {
+        while (from < to) {
+            int tmp = tour[from];
+            tour[from] = tour[to];
+            tour[to] = tmp;
+            from++;
+            to--;
+        }
+    }
+
+    /**
+     * Переносит участок [from, to] так, чтобы он стоял сразу после позиции {@code after}
+     * (позиция берется до переноса и не должна лежать внутри участка).
+     * Перенос делается тремя разворотами: (A B) -> (B A).
+     */
+    static void moveSegment(int[] tour, int from, int to, int after, boolean reversed) {
+        if (after > to) {
+            // Участок A = [from, to], блок B = [to + 1, after] -> B A
+            if (!reversed) {
+                reverse(tour, from, to);
+            }
+            reverse(tour, to + 1, after);
+            reverse(tour, from, after);
+        } else {
+            // Блок B = [after + 1, from - 1], участок A = [from, to] -> A B
+            reverse(tour, after + 1, from - 1);
+            if (!reversed) {
+                reverse(tour, from, to);
+            }
+            reverse(tour, after + 1, to);
+        }
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.strollie.route.service.tsp;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * 2-opt: разворачивает участок тура, если это убирает пересечение двух рёбер.
+ */
+@Component
+public class TwoOptImprover implements TourImprover {
+
+    private static final double EPSILON = 1e-6;
+
+    @Override
+    public String name() {
+        return "two-opt";
+    }
+
+    @Override
+    public boolean improve(int[] tour, DistanceMatrix distances, boolean openPath) {
+        int n = tour.length;
+        boolean improved = false;
+
+        for (int i = 1; i < n - 1; i++) {
+            for (int j = i + 1; j < n; j++) {
+                int a = tour[i - 1];
+                int b = tour[i];
+                int c = tour[j];
+
+                double delta;
+                if (j == n - 1 && openPath) {
+                    // У последней точки нет исходящего ребра — меняется только вход в участок
+                    delta = distances.between(a, c) - distances.between(a, b);
+                } else {
+                    int d = j == n - 1 ? tour[0] : tour[j + 1];
+                    delta = distances.between(a, c) + distances.between(b, d)
+                            - distances.between(a, b) - distances.between(c, d);
+                }
+
+                if (delta < -EPSILON) {
+                    TourMoves.reverse(tour, i, j);
+                    improved = true;
+                }
+            }
+        }
+        return improved;
+    }
+
+}
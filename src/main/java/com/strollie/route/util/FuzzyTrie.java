@@ -0,0 +1,122 @@
+package com.strollie.route.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Префиксное дерево с поиском по префиксу и по расстоянию Левенштейна.
+ * <p>
+ * Нечёткий поиск идёт по дереву, достраивая строку динамики для каждого узла;
+ * ветка отсекается, как только минимум строки превышает допустимое расстояние,
+ * поэтому на справочнике из сотен названий он укладывается в микросекунды.
+ * Заполняется при построении и дальше только читается, поэтому потокобезопасен для чтения.
+ */
+public class FuzzyTrie<V> {
+
+    private final Node<V> root = new Node<>();
+
+    public void put(String key, V value) {
+        Node<V> node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.children.computeIfAbsent(key.charAt(i), c -> new Node<>());
+        }
+        node.key = key;
+        node.values.add(value);
+    }
+
+    public List<V> get(String key) {
+        Node<V> node = find(key);
+        return node == null ? List.of() : List.copyOf(node.values);
+    }
+
+    /**
+     * Значения всех ключей, начинающихся с {@code prefix}, в алфавитном порядке ключей.
+     */
+    public List<V> startingWith(String prefix, int limit) {
+        List<V> result = new ArrayList<>();
+        Node<V> node = find(prefix);
+        if (node != null) {
+            collect(node, result, limit);
+        }
+        return result;
+    }
+
+    /**
+     * Ключи на расстоянии не больше {@code maxDistance} от {@code query}, ближайшие первыми.
+     */
+    public List<Match<V>> within(String query, int maxDistance) {
+        int[] firstRow = new int[query.length() + 1];
+        for (int i = 0; i < firstRow.length; i++) {
+            firstRow[i] = i;
+        }
+
+        List<Match<V>> matches = new ArrayList<>();
+        for (Map.Entry<Character, Node<V>> child : root.children.entrySet()) {
+            search(child.getValue(), child.getKey(), query, firstRow, maxDistance, matches);
+        }
+        matches.sort(Comparator.<Match<V>>comparingInt(Match::distance).thenComparing(Match::key));
+        return matches;
+    }
+
+    private void search(Node<V> node, char letter, String query, int[] previousRow, int maxDistance,
+                        List<Match<V>> matches) {
+        int columns = query.length() + 1;
+        int[] row = new int[columns];
+        row[0] = previousRow[0] + 1;
+        int rowMin = row[0];
+
+        for (int i = 1; i < columns; i++) {
+            int replace = previousRow[i - 1] + (query.charAt(i - 1) == letter ? 0 : 1);
+            row[i] = Math.min(Math.min(row[i - 1] + 1, previousRow[i] + 1), replace);
+            rowMin = Math.min(rowMin, row[i]);
+        }
+
+        if (node.key != null && row[columns - 1] <= maxDistance) {
+            for (V value : node.values) {
+                matches.add(new Match<>(node.key, value, row[columns - 1]));
+            }
+        }
+
+        if (rowMin <= maxDistance) {
+            for (Map.Entry<Character, Node<V>> child : node.children.entrySet()) {
+                search(child.getValue(), child.getKey(), query, row, maxDistance, matches);
+            }
+        }
+    }
+
+    private Node<V> find(String key) {
+        Node<V> node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.children.get(key.charAt(i));
+        }
+        return node;
+    }
+
+    private void collect(Node<V> node, List<V> result, int limit) {
+        for (V value : node.values) {
+            if (result.size() >= limit) {
+                return;
+            }
+            result.add(value);
+        }
+        for (Node<V> child : node.children.values()) {
+            if (result.size() >= limit) {
+                return;
+            }
+            collect(child, result, limit);
+        }
+    }
+
+    public record Match<V>(String key, V value, int distance) {
+    }
+
+    private static final class Node<V> {
+        private final Map<Character, Node<V>> children = new TreeMap<>();
+        private final List<V> values = new ArrayList<>(1);
+        private String key;
+    }
+
+}
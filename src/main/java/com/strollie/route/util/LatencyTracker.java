@@ -0,0 +1,104 @@
+package com.strollie.route.util;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Скользящее окно задержек вызовов одного внешнего сервиса и производные от него таймауты.
+ * <p>
+ * Таймаут — p99 окна, умноженный на запас, в пределах [min, max]; пока замеров мало,
+ * действует max. Прерванные по таймауту вызовы тоже попадают в окно (как нижняя оценка),
+ * иначе при деградации сервиса p99 занижался бы. Ошибки и отмены (например, проигравший
+ * дублирующий запрос) в окно не попадают: их длительность ничего не говорит о задержке сервиса.
+ */
+public class LatencyTracker {
+
+    // Отсортированный снимок пересчитывается не на каждый замер
+    private static final int REFRESH_EVERY = 16;
+
+    private final long[] window;
+    private final int minSamples;
+    private final double multiplier;
+    private final long minMillis;
+    private final long maxMillis;
+    private final boolean adaptive;
+
+    private int next;
+    private int size;
+    private int sinceRefresh;
+    private volatile long[] sorted = new long[0];
+
+    public LatencyTracker(int windowSize, int minSamples, double multiplier,
+                          long minMillis, long maxMillis, boolean adaptive) {
+        this.window = new long[Math.max(1, windowSize)];
+        this.minSamples = Math.max(1, Math.min(minSamples, this.window.length));
+        this.multiplier = multiplier;
+        this.minMillis = Math.min(minMillis, maxMillis);
+        this.maxMillis = maxMillis;
+        this.adaptive = adaptive;
+    }
+
+    public synchronized void record(long millis) {
+        window[next] = millis;
+        next = (next + 1) % window.length;
+        size = Math.min(size + 1, window.length);
+
+        if (++sinceRefresh >= REFRESH_EVERY || size <= minSamples) {
+            long[] snapshot = Arrays.copyOf(window, size);
+            Arrays.sort(snapshot);
+            sorted = snapshot;
+            sinceRefresh = 0;
+        }
+    }
+
+    /**
+     * Перцентиль задержки в мс; -1, пока замеров меньше минимума.
+     */
+    public long percentile(double quantile) {
+        long[] snapshot = sorted;
+        if (snapshot.length < minSamples) {
+            return -1;
+        }
+        int index = (int) Math.ceil(quantile * snapshot.length) - 1;
+        return snapshot[Math.max(0, Math.min(snapshot.length - 1, index))];
+    }
+
+    public Duration timeout() {
+        long p99 = adaptive ? percentile(0.99) : -1;
+        if (p99 < 0) {
+            return Duration.ofMillis(maxMillis);
+        }
+        long millis = (long) Math.ceil(p99 * multiplier);
+        return Duration.ofMillis(Math.max(minMillis, Math.min(maxMillis, millis)));
+    }
+
+    /**
+     * Задержка перед дублирующим запросом — p95, но не меньше {@code minDelayMillis};
+     * null, пока статистики недостаточно.
+     */
+    public Duration hedgeDelay(long minDelayMillis) {
+        long p95 = percentile(0.95);
+        return p95 < 0 ? null : Duration.ofMillis(Math.max(minDelayMillis, p95));
+    }
+
+    /**
+     * Ограничивает вызов текущим {@link #timeout()} и записывает его длительность,
+     * если он завершился успешно или по таймауту.
+     */
+    public <T> Mono<T> track(Mono<T> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.timeout(timeout())
+                    .doOnSuccess(value -> record(elapsedMillis(start)))
+                    .doOnError(TimeoutException.class, e -> record(elapsedMillis(start)));
+        });
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.strollie.route.util;
+
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Объединение одинаковых запросов «в полёте»: пока вызов по ключу не завершился,
+ * остальные подписчики с тем же ключом получают его результат, а не делают свой.
+ * <p>
+ * Вызов подписывается отдельно от вызывающих, поэтому отмена одного из ожидающих
+ * (например, по таймауту) не отменяет его для остальных. Результат не кэшируется:
+ * запись удаляется сразу после завершения.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    public Mono<V> execute(K key, Supplier<Mono<V>> call) {
+        return Mono.deferContextual(ctx -> {
+            CompletableFuture<V> created = new CompletableFuture<>();
+            CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+            if (existing != null) {
+                return Mono.fromFuture(existing, true);
+            }
+
+            // Запись убираем до завершения будущего, чтобы новые вызовы после результата шли заново
+            Mono.defer(call)
+                    .contextWrite(ctx)
+                    .subscribe(
+                            value -> {
+                                inFlight.remove(key, created);
+                                created.complete(value);
+                            },
+                            error -> {
+                                inFlight.remove(key, created);
+                                created.completeExceptionally(error);
+                            },
+                            () -> {
+                                inFlight.remove(key, created);
+                                created.complete(null);
+                            });
+            return Mono.fromFuture(created, true);
+        });
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+}
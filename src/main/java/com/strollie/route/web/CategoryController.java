@@ -2,7 +2,9 @@ package com.strollie.route.web;
 
 import com.strollie.route.model.dto.CategoryDto;
 import com.strollie.route.service.CategoryCacheService;
+import com.strollie.route.service.CategoryPayload;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -10,10 +12,17 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.Duration;
 import java.util.List;
 
 @RestController
@@ -22,20 +31,98 @@ import java.util.List;
 @Tag(name = "Categories", description = "Справочник доступных категорий мест")
 public class CategoryController {
 
+    private static final int MAX_SUGGESTIONS = 50;
+    // Клиенты перепроверяют список не чаще раза в 5 минут, а проверка стоит один 304
+    private static final CacheControl CATEGORIES_CACHE_CONTROL = CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic();
+
     private final CategoryCacheService categoryService;
 
-    @GetMapping
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
     @Operation(summary = "Получение списка категорий",
-            description = "Возвращает полный список категорий, доступных для построения маршрутов")
+            description = "Возвращает полный список категорий, доступных для построения маршрутов. "
+                    + "ETag — версия справочника: с If-None-Match неизменившийся список не передаётся повторно. "
+                    + "При Accept-Encoding: gzip ответ отдаётся сжатым")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Список категорий",
                     content = @Content(array = @ArraySchema(schema = @Schema(implementation = CategoryDto.class))))
             ,
+            @ApiResponse(responseCode = "304", description = "Справочник не изменился",
+                    content = @Content(schema = @Schema(hidden = true)))
+            ,
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка",
                     content = @Content(schema = @Schema(hidden = true)))
     })
-    public List<CategoryDto> getCategories() {
-        return categoryService.getAllCategories();
+    public ResponseEntity<byte[]> getCategories(
+            @Parameter(hidden = true)
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        // Тело заранее сериализовано и сжато для текущей версии справочника.
+        // Для GET с ETag Spring сам отвечает 304 на совпавший If-None-Match.
+        CategoryPayload payload = categoryService.getPayload();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .cacheControl(CATEGORIES_CACHE_CONTROL)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+
+        if (acceptsGzip(acceptEncoding)) {
+            // Сильный ETag различает представления: у сжатого свой
+            return response.eTag(payload.version() + "-gzip")
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .body(payload.gzip());
+        }
+        return response.eTag(payload.version()).body(payload.json());
+    }
+
+    @GetMapping("/suggest")
+    @Operation(summary = "Подсказки категорий при вводе",
+            description = "Ищет категории по началу названия или любого слова в нём, допуская небольшие опечатки")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Подходящие категории, лучшие первыми",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = CategoryDto.class))))
+    })
+    public List<CategoryDto> suggestCategories(
+            @Parameter(description = "Введённый текст", example = "муз")
+            @RequestParam(name = "q", defaultValue = "") String query,
+            @Parameter(description = "Максимальное число подсказок (1–50)", example = "10")
+            @RequestParam(defaultValue = "10") int limit) {
+        return categoryService.getIndex().suggest(query, Math.max(1, Math.min(limit, MAX_SUGGESTIONS)));
+    }
+
+    /**
+     * gzip разрешён, если его вес (q) больше нуля. Явно указанный gzip важнее «*»:
+     * для {@code gzip;q=0, *} сжатие запрещено.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase("gzip") || name.equalsIgnoreCase("x-gzip")) {
+                gzip = Math.max(gzip != null ? gzip : 0, quality(parts));
+            } else if (name.equals("*")) {
+                any = quality(parts);
+            }
+        }
+        Double quality = gzip != null ? gzip : any;
+        return quality != null && quality > 0;
+    }
+
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String[] param = parts[i].split("=", 2);
+            if (param.length == 2 && param[0].trim().equalsIgnoreCase("q")) {
+                try {
+                    return Double.parseDouble(param[1].trim());
+                } catch (NumberFormatException e) {
+                    // Некорректный вес — считаем кодировку неприемлемой
+                    return 0;
+                }
+            }
+        }
+        return 1;
     }
 
 }
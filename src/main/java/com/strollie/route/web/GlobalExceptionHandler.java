@@ -1,11 +1,13 @@
 package com.strollie.route.web;
 
+import com.strollie.route.service.RouteJobQueueFullException;
 import com.strollie.route.web.error.ErrorResponse;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -48,6 +50,29 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(body);
     }
 
+    @ExceptionHandler(RouteJobQueueFullException.class)
+    @ApiResponses({
+            @ApiResponse(responseCode = "429", description = "Очередь асинхронных заданий заполнена",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<ErrorResponse> handleQueueFull(RouteJobQueueFullException ex,
+                                                         WebRequest request) {
+        // Ожидаемая перегрузка, а не сбой — без стейктрейса
+        log.warn("Rejected at {}: {}", request.getDescription(false), ex.getMessage());
+
+        ErrorResponse body = ErrorResponse.builder()
+                .timestamp(OffsetDateTime.now())
+                .status(HttpStatus.TOO_MANY_REQUESTS.value())
+                .error(HttpStatus.TOO_MANY_REQUESTS.getReasonPhrase())
+                .message(ex.getMessage())
+                .path(request.getDescription(false))
+                .build();
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(body);
+    }
+
     @ExceptionHandler(Exception.class)
     @ApiResponses({
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера",
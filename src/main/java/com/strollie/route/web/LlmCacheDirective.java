@@ -0,0 +1,29 @@
+package com.strollie.route.web;
+
+import java.util.Locale;
+
+/**
+ * Разбор заголовка Cache-Control запросов генерации маршрута: директива {@code no-cache}
+ * отключает закэшированные ответы LLM. Общий для синхронного, реактивного, потокового
+ * и асинхронного режимов.
+ */
+final class LlmCacheDirective {
+
+    private LlmCacheDirective() {
+    }
+
+    static boolean useLlmCache(String cacheControl) {
+        if (cacheControl == null) {
+            return true;
+        }
+        for (String directive : cacheControl.split(",")) {
+            // У no-cache может быть аргумент: no-cache="field"
+            String name = directive.split("=", 2)[0].trim();
+            if (name.toLowerCase(Locale.ROOT).equals("no-cache")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -4,6 +4,7 @@ import com.strollie.route.model.dto.RouteRequest;
 import com.strollie.route.model.dto.RouteResponse;
 import com.strollie.route.service.RouteOrchestrationService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -11,11 +12,17 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @RestController
 @RequestMapping("/api/routes")
@@ -50,8 +57,56 @@ public class RouteController {
                             }
                     )
             )
-            @Valid @RequestBody RouteRequest request) {
-        return ResponseEntity.ok(orchestrationService.generateRoute(request));
+            @Valid @RequestBody RouteRequest request,
+            @Parameter(description = "no-cache — не использовать закэшированные ответы LLM")
+            @RequestHeader(value = HttpHeaders.CACHE_CONTROL, required = false) String cacheControl) {
+        return ResponseEntity.ok(orchestrationService.generateRoute(request, LlmCacheDirective.useLlmCache(cacheControl)));
     }
 
-}
\ No newline at end of file
+    @PostMapping("/generate/reactive")
+    @Operation(
+            summary = "Генерация туристического маршрута (неблокирующая)",
+            description = "То же, что /generate, но весь конвейер (LLM, 2GIS) выполняется реактивно: "
+                    + "поток сервера не удерживается на время ожидания внешних API"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Маршрут успешно сгенерирован",
+                    content = @Content(schema = @Schema(implementation = RouteResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Ошибка валидации входных данных"),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера")
+    })
+    public Mono<RouteResponse> generateRouteReactive(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Параметры генерации маршрута",
+                    required = true,
+                    content = @Content(schema = @Schema(implementation = RouteRequest.class)))
+            @Valid @RequestBody RouteRequest request,
+            @Parameter(description = "no-cache — не использовать закэшированные ответы LLM")
+            @RequestHeader(value = HttpHeaders.CACHE_CONTROL, required = false) String cacheControl) {
+        return orchestrationService.generateRouteReactive(request, LlmCacheDirective.useLlmCache(cacheControl));
+    }
+
+    @PostMapping(value = "/generate/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(
+            summary = "Генерация туристического маршрута (потоковая)",
+            description = "Server-Sent Events: route — точки и ссылка на маршрут сразу после оптимизации порядка, "
+                    + "description — фрагменты описания по мере генерации LLM ({\"delta\": ...}), "
+                    + "done — итоговый маршрут с полным описанием"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Поток событий генерации маршрута",
+                    content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE)),
+            @ApiResponse(responseCode = "400", description = "Ошибка валидации входных данных"),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера")
+    })
+    public Flux<ServerSentEvent<Object>> generateRouteStream(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Параметры генерации маршрута",
+                    required = true,
+                    content = @Content(schema = @Schema(implementation = RouteRequest.class)))
+            @Valid @RequestBody RouteRequest request,
+            @Parameter(description = "no-cache — не использовать закэшированные ответы LLM")
+            @RequestHeader(value = HttpHeaders.CACHE_CONTROL, required = false) String cacheControl) {
+        return orchestrationService.streamRoute(request, LlmCacheDirective.useLlmCache(cacheControl))
+                .map(event -> ServerSentEvent.<Object>builder(event.data()).event(event.name()).build());
+    }
+
+}
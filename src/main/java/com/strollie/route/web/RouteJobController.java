@@ -0,0 +1,101 @@
+package com.strollie.route.web;
+
+import com.strollie.route.model.dto.RouteJobResponse;
+import com.strollie.route.model.dto.RouteRequest;
+import com.strollie.route.service.RouteJob;
+import com.strollie.route.service.RouteJobService;
+import com.strollie.route.web.error.ErrorResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/routes/jobs")
+@Tag(name = "Routes")
+public class RouteJobController {
+
+    private final RouteJobService jobService;
+
+    @PostMapping
+    @Operation(
+            summary = "Асинхронная генерация маршрута",
+            description = "Ставит запрос в очередь и сразу возвращает идентификатор задания; "
+                    + "результат забирается через GET /api/routes/jobs/{id}"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "202", description = "Задание принято",
+                    content = @Content(schema = @Schema(implementation = RouteJobResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Ошибка валидации входных данных"),
+            @ApiResponse(responseCode = "429", description = "Очередь заданий заполнена, повторите после Retry-After",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<RouteJobResponse> submit(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Параметры генерации маршрута",
+                    required = true,
+                    content = @Content(schema = @Schema(implementation = RouteRequest.class)))
+            @Valid @RequestBody RouteRequest request,
+            @Parameter(description = "no-cache — не использовать закэшированные ответы LLM")
+            @RequestHeader(value = HttpHeaders.CACHE_CONTROL, required = false) String cacheControl) {
+        RouteJob job = jobService.submit(request, LlmCacheDirective.useLlmCache(cacheControl));
+
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                .path("/{id}")
+                .buildAndExpand(job.getId())
+                .toUri();
+        return ResponseEntity.accepted().location(location).body(toResponse(job));
+    }
+
+    @GetMapping("/{id}")
+    @Operation(
+            summary = "Состояние асинхронного задания",
+            description = "С параметром wait ответ задерживается до завершения задания, но не дольше wait секунд (long-poll)"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Текущее состояние задания",
+                    content = @Content(schema = @Schema(implementation = RouteJobResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Задание не найдено или его результат уже удалён")
+    })
+    public Mono<ResponseEntity<RouteJobResponse>> get(
+            @Parameter(description = "Идентификатор задания") @PathVariable String id,
+            @Parameter(description = "Сколько секунд ждать завершения задания", example = "20")
+            @RequestParam(defaultValue = "0") int wait) {
+        return jobService.find(id)
+                .map(job -> jobService.await(job, Duration.ofSeconds(wait))
+                        .map(current -> ResponseEntity.ok(toResponse(current))))
+                .orElseGet(() -> Mono.just(ResponseEntity.notFound().build()));
+    }
+
+    private RouteJobResponse toResponse(RouteJob job) {
+        return RouteJobResponse.builder()
+                .jobId(job.getId())
+                .status(job.getStatus().name())
+                .submittedAt(job.getSubmittedAt())
+                .completedAt(job.getCompletedAt())
+                .result(job.getResult())
+                .error(job.getError())
+                .build();
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.strollie.route.cache;
+
+import com.strollie.route.config.ApiKeysConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EnrichmentSemanticCacheTest {
+
+    private static final List<String> CATEGORIES = List.of("Музеи", "Парки");
+    private static final List<String> ENRICHED = List.of("Музеи", "Парки", "Театры", "Галереи");
+
+    private final EnrichmentSemanticCache cache = new EnrichmentSemanticCache(config());
+
+    @Test
+    void reusesEnrichmentForNearDuplicateDescription() {
+        cache.put("Москва", CATEGORIES, "Культурный вечер в центре", ENRICHED);
+
+        // Порядок и регистр исходных категорий на группу не влияют
+        assertThat(cache.find("москва", List.of("парки", "Музеи"), "Культурный вечер в центре города"))
+                .contains(ENRICHED);
+        assertThat(cache.getHits()).isEqualTo(1);
+    }
+
+    @Test
+    void matchesDifferentWordFormsOfSameRequest() {
+        cache.put("Москва", CATEGORIES, "культурный вечер", ENRICHED);
+
+        // Обрезка до основы сводит «культурный/культурная» и «вечер/вечером»: близость ~0.82
+        assertThat(cache.find("Москва", CATEGORIES, "культурная прогулка вечером")).contains(ENRICHED);
+    }
+
+    @Test
+    void neverMatchesAcrossNegation() {
+        cache.put("Москва", CATEGORIES, "хочу в музеи", ENRICHED);
+        cache.put("Москва", CATEGORIES, "музеи и парки", ENRICHED);
+
+        // Векторы у этих пар совпадают полностью, различает их только отрицание
+        assertThat(cache.find("Москва", CATEGORIES, "не хочу в музеи")).isEmpty();
+        assertThat(cache.find("Москва", CATEGORIES, "музеи, но не парки")).isEmpty();
+        assertThat(cache.getHits()).isZero();
+    }
+
+    @Test
+    void missesUnrelatedDescription() {
+        cache.put("Москва", CATEGORIES, "Культурный вечер в центре", ENRICHED);
+
+        assertThat(cache.find("Москва", CATEGORIES, "Шумный бар с живой музыкой")).isEmpty();
+        assertThat(cache.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    void neverReusesAcrossCitiesOrCategories() {
+        cache.put("Москва", CATEGORIES, "Культурный вечер в центре", ENRICHED);
+
+        assertThat(cache.find("Казань", CATEGORIES, "Культурный вечер в центре")).isEmpty();
+        assertThat(cache.find("Москва", List.of("Музеи"), "Культурный вечер в центре")).isEmpty();
+        assertThat(cache.find("Москва", List.of("Музеи", "Парки", "Кафе"), "Культурный вечер в центре")).isEmpty();
+        assertThat(cache.getHits()).isZero();
+    }
+
+    private static ApiKeysConfig config() {
+        ApiKeysConfig config = new ApiKeysConfig();
+        config.setLlm(new ApiKeysConfig.Llm());
+        return config;
+    }
+
+}
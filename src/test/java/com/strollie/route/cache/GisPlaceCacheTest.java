@@ -0,0 +1,187 @@
+package com.strollie.route.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.strollie.route.config.ApiKeysConfig;
+import com.strollie.route.config.JacksonConfig;
+import com.strollie.route.model.dto.PlaceDto;
+import com.strollie.route.model.schedule.WeeklySchedule;
+import com.strollie.route.util.GeoHash;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GisPlaceCacheTest {
+
+    private static final double METERS_PER_DEGREE = 111_320.0;
+    // Центр тайла точности 6, куда попадают все точки тестов; тайл около 610 м по широте
+    private static final double[] CENTER = GeoHash.center(GeoHash.encode(55.75, 37.62, 6));
+    private static final double LAT = CENTER[0];
+    private static final double LON = CENTER[1];
+    // Понедельник, полдень
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 10, 12, 12, 0);
+    private static final ObjectMapper MAPPER = new JacksonConfig().objectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    private final List<String> fetches = new ArrayList<>();
+
+    @Test
+    void areaIsTileCenterWithRadiusCoveringBucketFromAnyPointOfTile() {
+        GisPlaceCache cache = cache(null);
+
+        GisPlaceCache.Area area = cache.area("rubric:161", north(100), LON, 3000);
+
+        // Другая точка тайла и радиус из той же корзины — та же запись
+        assertThat(cache.area(" RUBRIC:161 ", north(-100), LON, 2500)).isEqualTo(area);
+        assertThat(cache.area("rubric:161", LAT, LON, 3500).key()).isNotEqualTo(area.key());
+        assertThat(cache.area("rubric:162", LAT, LON, 3000).key()).isNotEqualTo(area.key());
+        assertThat(cache.area("rubric:161", LAT + 0.1, LON, 3000).key()).isNotEqualTo(area.key());
+        assertThat(area.lat()).isEqualTo(LAT);
+        assertThat(area.lon()).isEqualTo(LON);
+        assertThat(area.radiusMeters()).isGreaterThan(3000 + 300);
+    }
+
+    @Test
+    void twoStartPointsInSameTileShareOneUpstreamCall() {
+        GisPlaceCache cache = cache(null);
+        GisPlaceCache.Fetcher fetcher = fetcher(placesNorthOf(10, 50), List.of());
+
+        List<PlaceDto> first = cache.getOrFetch("q", north(100), LON, 3000, 10, 10, NOW, fetcher).block();
+        List<PlaceDto> second = cache.getOrFetch("q", north(-150), LON, 3000, 10, 10, NOW, fetcher).block();
+
+        assertThat(first).hasSize(10);
+        assertThat(second).hasSize(10);
+        assertThat(fetches).containsExactly("tile");
+        assertThat(cache.getStats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void fetchesExactCircleOnlyWhenTilePageHasTooFewPlacesAndKeepsIt() {
+        GisPlaceCache cache = cache(null);
+        // Полная страница тайла, но все места дальше 3 км от старта
+        GisPlaceCache.Fetcher fetcher = fetcher(placesNorthOf(10, 3300, 10), placesNorthOf(10, 100));
+
+        List<PlaceDto> places = cache.getOrFetch("q", LAT, LON, 3000, 10, 10, NOW, fetcher).block();
+        List<PlaceDto> repeated = cache.getOrFetch("q", LAT, LON, 3000, 10, 10, NOW, fetcher).block();
+
+        assertThat(places).extracting(PlaceDto::getId).first().isEqualTo("p0");
+        assertThat(repeated).extracting(PlaceDto::getId).containsExactlyElementsOf(ids(places));
+        assertThat(fetches).containsExactly("tile", "exact");
+
+        // Свежая страница тайла повторно не запрашивается, другой точке нужен свой точный запрос
+        cache.getOrFetch("q", north(100), LON, 3000, 10, 10, NOW, fetcher).block();
+        assertThat(fetches).containsExactly("tile", "exact", "exact");
+    }
+
+    @Test
+    void missesWhenFullPageHasTooFewPlacesInCircle() {
+        GisPlaceCache cache = cache(null);
+        GisPlaceCache.Area area = cache.area("q", LAT, LON, 1000);
+        // 10 мест через каждые 300 м: в круг 1 км попадают только первые три
+        cache.put(area, placesNorthOf(10, 300), 10);
+
+        assertThat(cache.get(area, LAT, LON, 1000, 5, NOW)).isNull();
+        assertThat(cache.get(area, LAT, LON, 1000, 3, NOW)).extracting(PlaceDto::getId)
+                .containsExactly("p0", "p1", "p2");
+        assertThat(cache.getStats().missCount()).isEqualTo(1);
+        assertThat(cache.getStats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void servesFewerPlacesWhenPageWasIncomplete() {
+        GisPlaceCache cache = cache(null);
+        GisPlaceCache.Area area = cache.area("q", LAT, LON, 1000);
+        cache.put(area, placesNorthOf(3, 600), 10);
+
+        assertThat(cache.get(area, LAT, LON, 1000, 5, NOW)).extracting(PlaceDto::getId).containsExactly("p0");
+        assertThat(cache.get(cache.area("other", LAT, LON, 1000), LAT, LON, 1000, 5, NOW)).isNull();
+    }
+
+    @Test
+    void selectFiltersByRadiusAndRecomputesOpenNowOnCopies() {
+        PlaceDto open = place("open", LAT, LON);
+        open.setSchedule(WeeklySchedule.builder().add(DayOfWeek.MONDAY, 10 * 60, 19 * 60).build());
+        PlaceDto far = place("far", north(2000), LON);
+
+        List<PlaceDto> selected = GisPlaceCache.select(List.of(open, far), LAT, LON, 1000, 10, NOW);
+
+        assertThat(selected).extracting(PlaceDto::getId).containsExactly("open");
+        assertThat(selected.get(0).isOpenNow()).isTrue();
+        assertThat(selected.get(0)).isNotSameAs(open);
+        assertThat(open.isOpenNow()).isFalse();
+        assertThat(GisPlaceCache.select(placesNorthOf(10, 10), LAT, LON, 1000, 4, NOW)).hasSize(4);
+    }
+
+    @Test
+    void snapshotRoundTripKeepsTilePageExactAnswersAndSchedules() {
+        Path snapshot = tempDir.resolve("places.json");
+        GisPlaceCache cache = cache(snapshot);
+        GisPlaceCache.Area area = cache.area("q", LAT, LON, 2000);
+        List<PlaceDto> page = placesNorthOf(3, 100);
+        page.get(0).setSchedule(WeeklySchedule.builder().add(DayOfWeek.MONDAY, 10 * 60, 19 * 60).build());
+        cache.put(area, page, 10);
+        cache.putExact(area, north(200), LON, 2000, placesNorthOf(10, 150), 10);
+        cache.save();
+
+        GisPlaceCache restored = cache(snapshot);
+        restored.load();
+
+        assertThat(restored.size()).isEqualTo(1);
+        assertThat(restored.hasTilePage(area)).isTrue();
+        List<PlaceDto> places = restored.get(area, LAT, LON, 2000, 10, NOW);
+        assertThat(places).extracting(PlaceDto::getId).containsExactly("p0", "p1", "p2");
+        assertThat(places.get(0).getSchedule()).isEqualTo(page.get(0).getSchedule());
+        assertThat(places.get(0).isOpenNow()).isTrue();
+        assertThat(restored.get(area, north(200), LON, 2000, 10, NOW)).hasSize(3);
+    }
+
+    private GisPlaceCache.Fetcher fetcher(List<PlaceDto> tilePage, List<PlaceDto> exactPage) {
+        return (lat, lon, radiusMeters, pageSize) -> Mono.fromSupplier(() -> {
+            boolean tile = lat == LAT && lon == LON && radiusMeters > 3000 + 300;
+            fetches.add(tile ? "tile" : "exact");
+            return tile ? tilePage : exactPage;
+        });
+    }
+
+    private static GisPlaceCache cache(Path snapshot) {
+        ApiKeysConfig config = new ApiKeysConfig();
+        config.setGis(new ApiKeysConfig.Gis());
+        config.getGis().getPlaceCache().setSnapshotPath(snapshot != null ? snapshot.toString() : "");
+        return new GisPlaceCache(config, MAPPER);
+    }
+
+    private static double north(double meters) {
+        return LAT + meters / METERS_PER_DEGREE;
+    }
+
+    // Места на север от центра тайла с шагом stepMeters, уже в порядке рейтинга
+    private static List<PlaceDto> placesNorthOf(int count, int stepMeters) {
+        return placesNorthOf(count, stepMeters, stepMeters);
+    }
+
+    private static List<PlaceDto> placesNorthOf(int count, int firstMeters, int stepMeters) {
+        List<PlaceDto> places = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            places.add(place("p" + i, north(firstMeters + i * stepMeters), LON));
+        }
+        return places;
+    }
+
+    private static PlaceDto place(String id, double lat, double lon) {
+        return PlaceDto.builder().id(id).name(id).lat(lat).lon(lon).build();
+    }
+
+    private static List<String> ids(List<PlaceDto> places) {
+        return places.stream().map(PlaceDto::getId).toList();
+    }
+
+}
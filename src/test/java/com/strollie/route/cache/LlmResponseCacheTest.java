@@ -0,0 +1,96 @@
+package com.strollie.route.cache;
+
+import com.strollie.route.config.ApiKeysConfig;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LlmResponseCacheTest {
+
+    private final LlmResponseCache cache = new LlmResponseCache(config());
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void keyCoversModelSchemaAndBothPrompts() {
+        assertThat(call("model", "filter", "system", "user")).isEqualTo("response-1");
+        assertThat(call("model", "filter", "system", "user")).isEqualTo("response-1");
+        assertThat(calls).hasValue(1);
+
+        call("other-model", "filter", "system", "user");
+        call("model", "description", "system", "user");
+        call("model", "filter", "other system", "user");
+        call("model", "filter", "system", "other user");
+        assertThat(calls).hasValue(5);
+
+        // Части ключа разделены: перенос текста между промптами даёт другой ключ
+        call("model", "filter", "systemuser", "");
+        call("model", "filter", "", "systemuser");
+        assertThat(calls).hasValue(7);
+        assertThat(cache.getStats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void noCacheContextBypassesLookupAndStore() {
+        call("model", "filter", "system", "user");
+
+        String bypassed = LlmResponseCache.bypass(
+                cache.getOrCall("model", "filter", "system", "user", this::upstream)).block();
+
+        assertThat(bypassed).isEqualTo("response-2");
+        assertThat(LlmResponseCache.bypass(
+                cache.getOrStream("model", "filter", "system", "user", () -> Flux.just("fresh")))
+                .collectList().block()).containsExactly("fresh");
+        // Ответ в обход кэша не заменяет сохранённый
+        assertThat(call("model", "filter", "system", "user")).isEqualTo("response-1");
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void errorsAndEmptyResponsesAreNotCached() {
+        Mono<String> failed = cache.getOrCall("model", "filter", "system", "user",
+                () -> Mono.error(new IllegalStateException("upstream failed")));
+        assertThatThrownBy(failed::block).isInstanceOf(IllegalStateException.class);
+
+        assertThat(cache.getOrCall("model", "filter", "system", "user", Mono::empty).block()).isNull();
+
+        assertThat(call("model", "filter", "system", "user")).isEqualTo("response-1");
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void streamIsCachedOnlyAfterSuccessfulCompletion() {
+        Flux<String> broken = cache.getOrStream("model", "stream", "system", "user",
+                () -> Flux.concat(Flux.just("partial "), Flux.error(new IllegalStateException("cut off"))));
+        assertThatThrownBy(() -> broken.collectList().block()).isInstanceOf(IllegalStateException.class);
+        assertThat(cache.getOrStream("model", "stream", "system", "user", Flux::empty).collectList().block())
+                .isEmpty();
+        assertThat(cache.size()).isZero();
+
+        assertThat(cache.getOrStream("model", "stream", "system", "user", () -> Flux.just("Hello, ", "world"))
+                .collectList().block()).containsExactly("Hello, ", "world");
+        // Попадание отдаёт склеенный текст одним фрагментом
+        assertThat(cache.getOrStream("model", "stream", "system", "user", () -> Flux.just("other"))
+                .collectList().block()).isEqualTo(List.of("Hello, world"));
+    }
+
+    private String call(String model, String schema, String systemPrompt, String userPrompt) {
+        return cache.getOrCall(model, schema, systemPrompt, userPrompt, this::upstream).block();
+    }
+
+    private Mono<String> upstream() {
+        return Mono.fromSupplier(() -> "response-" + calls.incrementAndGet());
+    }
+
+    private static ApiKeysConfig config() {
+        ApiKeysConfig config = new ApiKeysConfig();
+        config.setLlm(new ApiKeysConfig.Llm());
+        return config;
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.strollie.route.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.strollie.route.model.dto.PlaceDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class CandidateTableTest {
+
+    @Test
+    void encodesRowsWithAliasesAndPlaceholders() {
+        PlaceDto museum = place("70000001012345678", "Эрмитаж | Главный штаб", 4.9, 12000, "Музей\nизобразительного искусства");
+        PlaceDto cafe = place("70000001087654321", "Кофейня", null, null, null);
+
+        CandidateTable table = CandidateTable.encode(List.of(museum, cafe), 0);
+
+        assertThat(table.text()).isEqualTo(CandidateTable.HEADER + "\n"
+                + "1|Эрмитаж / Главный штаб|Музеи|4.9|Музей изобразительного искусства\n"
+                + "2|Кофейня|Музеи|-|-");
+        assertThat(table.resolve(List.of("2", " 1", "9", "2"))).containsExactly(cafe, museum);
+        assertThat(table.dropped()).isZero();
+    }
+
+    @Test
+    void budgetDropsLeastValuableCandidatesAndKeepsOrder() {
+        String about = "x".repeat(90);
+        PlaceDto top = place("a", "Top", 4.8, 500, about);
+        PlaceDto unrated = place("b", "Unrated", null, null, about);
+        PlaceDto weak = place("c", "Weak", 3.1, 10, about);
+        PlaceDto good = place("d", "Good", 4.5, 100, about);
+
+        CandidateTable full = CandidateTable.encode(List.of(top, unrated, weak, good), 0);
+        CandidateTable trimmed = CandidateTable.encode(List.of(top, unrated, weak, good), full.estimatedTokens() - 40);
+
+        assertThat(trimmed.dropped()).isEqualTo(2);
+        assertThat(trimmed.places().values()).containsExactly(top, good);
+        assertThat(trimmed.estimatedTokens()).isLessThan(full.estimatedTokens());
+    }
+
+    @Test
+    void estimatesJsonBaselineWithoutSerializing() throws Exception {
+        List<PlaceDto> candidates = List.of(
+                place("70000001012345678", "Эрмитаж", 4.9, 12000, "Музей изобразительного искусства " + "x".repeat(300)),
+                place("70000001087654321", "Кофейня", null, null, null));
+        String json = new ObjectMapper().writeValueAsString(candidates.stream()
+                .map(p -> {
+                    Map<String, String> map = new LinkedHashMap<>();
+                    map.put("id", p.getId());
+                    map.put("name", p.getName());
+                    map.put("category", p.getCategory());
+                    map.put("rating", String.valueOf(p.getRating()));
+                    if (p.getDescription() != null) {
+                        map.put("description", p.getDescription().substring(0, 200));
+                    }
+                    return map;
+                })
+                .toList());
+
+        assertThat(CandidateTable.estimateJsonTokens(candidates)).isCloseTo(CandidateTable.estimateTokens(json), within(1));
+    }
+
+    private static PlaceDto place(String id, String name, Double rating, Integer reviews, String description) {
+        return PlaceDto.builder()
+                .id(id)
+                .name(name)
+                .category("Музеи")
+                .rating(rating)
+                .reviewCount(reviews)
+                .description(description)
+                .build();
+    }
+
+}
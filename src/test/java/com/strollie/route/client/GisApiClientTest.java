@@ -0,0 +1,441 @@
+package com.strollie.route.client;
+
+import com.strollie.route.cache.CityRegionCache;
+import com.strollie.route.cache.GisPlaceCache;
+import com.strollie.route.config.ApiKeysConfig;
+import com.strollie.route.config.JacksonConfig;
+import com.strollie.route.config.RoutingConfig;
+import com.strollie.route.model.dto.PlaceDto;
+import com.strollie.route.model.external.gis.GisItemsResponse;
+import com.strollie.route.model.schedule.WeeklySchedule;
+import com.strollie.route.service.CityClock;
+import com.strollie.route.util.LatencyTracker;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GisApiClientTest {
+
+    private static final Duration WAIT = Duration.ofSeconds(5);
+    private static final String ITEMS_URL = "https://catalog.api.2gis.com/3.0/items?q=museum&key=test";
+
+    private final ApiKeysConfig config = config();
+    // Номер попытки (с 1) -> ответ 2GIS
+    private Function<Integer, Mono<ClientResponse>> upstream = attempt -> Mono.just(json(items("Музей")));
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final List<String> cancelled = new CopyOnWriteArrayList<>();
+    private CityRegionCache cityCache;
+
+    @Test
+    void decodesRecordedItemsResponse() throws IOException {
+        String body = fixture("/gis/items.json");
+        upstream = attempt -> Mono.just(json(body));
+
+        List<PlaceDto> places = searchWithoutCategories();
+
+        assertThat(places).extracting(PlaceDto::getId)
+                .containsExactly("4504127908538375", "4504127908446101", "70000001057394703", "70000001020475539");
+
+        // Рейтинг и число отзывов строками, первая рубрика — категория, фото из альбома
+        PlaceDto gallery = places.get(0);
+        assertThat(gallery.getCategory()).isEqualTo("Музеи");
+        assertThat(gallery.getLat()).isEqualTo(55.741556);
+        assertThat(gallery.getLon()).isEqualTo(37.620028);
+        assertThat(gallery.getAddress()).isEqualTo("Лаврушинский переулок, 10");
+        assertThat(gallery.getRating()).isEqualTo(4.9);
+        assertThat(gallery.getReviewCount()).isEqualTo(12543);
+        assertThat(gallery.getPhotoUrl()).endsWith("30258560076741797_1f3d.jpg");
+        assertThat(gallery.getWorkingHours()).startsWith("Вт: 10:00-18:00, Ср: 10:00-18:00, Чт: 10:00-21:00");
+        assertThat(gallery.getSchedule().isOpenAt(12 * 60)).isFalse();
+
+        // Рейтинг и число отзывов числами
+        PlaceDto park = places.get(1);
+        assertThat(park.getRating()).isEqualTo(4.7);
+        assertThat(park.getReviewCount()).isEqualTo(8731);
+        assertThat(park.getWorkingHours()).isEqualTo("Круглосуточно");
+        assertThat(park.isOpenNow()).isTrue();
+        assertThat(park.getPhotoUrl()).isNull();
+
+        // Без координат, рубрик, рейтинга, расписания и фото
+        PlaceDto bare = places.get(2);
+        assertThat(bare.getName()).isEqualTo("Арт-пространство без адреса");
+        assertThat(bare.getLat()).isZero();
+        assertThat(bare.getLon()).isZero();
+        assertThat(bare.getCategory()).isNull();
+        assertThat(bare.getRating()).isNull();
+        assertThat(bare.getReviewCount()).isZero();
+        assertThat(bare.getSchedule()).isNull();
+        assertThat(bare.getPhotoUrl()).isNull();
+
+        // Пустой список рубрик, без отзывов; неизвестные поля пропускаются
+        PlaceDto fresh = places.get(3);
+        assertThat(fresh.getCategory()).isNull();
+        assertThat(fresh.getReviewCount()).isNull();
+        assertThat(fresh.getLat()).isEqualTo(55.751244);
+    }
+
+    @Test
+    void returnsNoPlacesWhenItemsAreMissing() {
+        upstream = attempt -> Mono.just(json("{\"meta\": {\"code\": 200}, \"result\": {\"total\": 0}}"));
+        assertThat(searchWithoutCategories()).isEmpty();
+
+        upstream = attempt -> Mono.just(json("{\"meta\": {\"code\": 200}}"));
+        assertThat(searchWithoutCategories()).isEmpty();
+    }
+
+    @Test
+    void returnsNoPlacesOnApiErrorCode() {
+        upstream = attempt -> Mono.just(json("{\"meta\": {\"code\": 404, \"error\": "
+                + "{\"type\": \"itemNotFound\", \"message\": \"Results not found\"}}}"));
+
+        assertThat(searchWithoutCategories()).isEmpty();
+        assertThat(requests).hasSize(1);
+    }
+
+    @Test
+    void searchesByRubricWithinRegion() {
+        cityCache = regions(Mono.just("32"), Mono.just("168"));
+        upstream = byQuery(items("Музей по рубрике"), items("Музей по тексту"));
+
+        assertThat(names(search())).containsExactly("Музей по рубрике");
+        assertThat(requests).singleElement().satisfies(url -> assertThat(url)
+                .contains("rubric_id=168", "region_id=32")
+                .doesNotContain("q="));
+    }
+
+    @Test
+    void searchesByRubricWithoutRegionWhenRegionLookupFails() {
+        cityCache = regions(Mono.error(new IllegalStateException("regions unavailable")), Mono.just("168"));
+        upstream = byQuery(items("Музей по рубрике"), items("Музей по тексту"));
+
+        assertThat(names(search())).containsExactly("Музей по рубрике");
+        assertThat(requests).singleElement().satisfies(url -> assertThat(url)
+                .contains("rubric_id=168")
+                .doesNotContain("region_id"));
+    }
+
+    @Test
+    void fallsBackToTextSearchForUnknownRubric() {
+        cityCache = regions(Mono.just("32"), Mono.empty());
+        upstream = byQuery(items("Музей по рубрике"), items("Музей по тексту"));
+
+        assertThat(names(search())).containsExactly("Музей по тексту");
+        assertThat(requests).singleElement().satisfies(url -> assertThat(url)
+                .contains("q=")
+                .doesNotContain("rubric_id"));
+    }
+
+    @Test
+    void fallsBackToTextSearchWhenRubricFindsNothing() {
+        cityCache = regions(Mono.just("32"), Mono.just("168"));
+        upstream = byQuery(items(), items("Музей по тексту"));
+
+        assertThat(names(search())).containsExactly("Музей по тексту");
+        assertThat(requests).hasSize(2);
+        assertThat(requests.get(0)).contains("rubric_id=168");
+        assertThat(requests.get(1)).contains("q=").doesNotContain("rubric_id");
+    }
+
+    @Test
+    void resolvesRubricWithinCategoryDeadline() {
+        // Дедлайн категории 2000 мс: рубрику ждём не дольше половины, затем ищем по тексту
+        cityCache = regions(Mono.just("32"), Mono.never());
+        upstream = byQuery(items("Музей по рубрике"), items("Музей по тексту"));
+
+        StepVerifier.withVirtualTime(this::searchReactive)
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(999))
+                .then(() -> assertThat(requests).isEmpty())
+                .thenAwait(Duration.ofMillis(1))
+                .assertNext(places -> assertThat(names(places)).containsExactly("Музей по тексту"))
+                .expectComplete()
+                .verify(WAIT);
+        assertThat(requests).singleElement().satisfies(url -> assertThat(url).doesNotContain("rubric_id"));
+    }
+
+    @Test
+    void slowCategoryYieldsEmptyListWhileOthersKeepTheirOrder() {
+        cityCache = regions(Mono.just("32"), Mono.empty());
+        // Запросы уходят в порядке категорий; таймаут попытки выше дедлайна категории
+        LatencyTracker tracker = new LatencyTracker(16, 1, 2.0, 100, 5000, true);
+        upstream = attempt -> switch (attempt) {
+            case 1 -> answer("Музей", Duration.ofMillis(100));
+            case 2 -> Mono.<ClientResponse>never().doOnCancel(() -> cancelled.add("Парки"));
+            default -> answer("Кафе", Duration.ofMillis(10));
+        };
+
+        StepVerifier.withVirtualTime(() -> client(tracker).searchEachCategoryReactive(
+                        "Москва", List.of("Музеи", "Парки", "Кафе"), 55.75, 37.62, 3000, 10))
+                .expectSubscription()
+                .then(() -> assertThat(requests).hasSize(3))
+                .expectNoEvent(Duration.ofMillis(1999))
+                .thenAwait(Duration.ofMillis(1))
+                .assertNext(perCategory -> {
+                    assertThat(perCategory).hasSize(3);
+                    assertThat(names(perCategory.get(0))).containsExactly("Музей");
+                    assertThat(perCategory.get(1)).isEmpty();
+                    assertThat(names(perCategory.get(2))).containsExactly("Кафе");
+                })
+                .expectComplete()
+                .verify(WAIT);
+        assertThat(cancelled).containsExactly("Парки");
+    }
+
+    @Test
+    void sendsHedgedRequestOnlyAfterDelayAndTakesFirstAnswer() {
+        // p95 = 200 мс — дублирующий запрос через 200 мс; таймаут попытки p99 * 2 = 400 мс
+        LatencyTracker tracker = tracker(200);
+        upstream = attempt -> attempt == 1
+                ? answer("first", Duration.ofMillis(300))
+                : answer("hedge", Duration.ofMillis(50));
+
+        StepVerifier.withVirtualTime(() -> client(tracker).getItems(ITEMS_URL).map(GisApiClientTest::firstName))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(199))
+                .then(() -> assertThat(requests).hasSize(1))
+                .thenAwait(Duration.ofMillis(1))
+                .then(() -> assertThat(requests).hasSize(2))
+                .expectNoEvent(Duration.ofMillis(49))
+                .thenAwait(Duration.ofMillis(1))
+                .expectNext("hedge")
+                .expectComplete()
+                .verify(WAIT);
+        // Проигравший запрос отменён, а не дожидается ответа
+        assertThat(cancelled).containsExactly("first");
+    }
+
+    @Test
+    void skipsHedgeWhenFirstAnswerComesBeforeDelay() {
+        LatencyTracker tracker = tracker(200);
+        upstream = attempt -> answer(attempt == 1 ? "first" : "hedge", Duration.ofMillis(150));
+
+        StepVerifier.withVirtualTime(() -> client(tracker).getItems(ITEMS_URL).map(GisApiClientTest::firstName))
+                .expectSubscription()
+                .thenAwait(Duration.ofMillis(150))
+                .expectNext("first")
+                .expectComplete()
+                .verify(WAIT);
+        assertThat(requests).hasSize(1);
+        assertThat(cancelled).isEmpty();
+    }
+
+    @Test
+    void failedFirstRequestDoesNotCancelHedge() {
+        LatencyTracker tracker = tracker(200);
+        upstream = attempt -> attempt == 1
+                ? Mono.delay(Duration.ofMillis(50)).map(tick -> ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build())
+                : answer("hedge", Duration.ofMillis(100));
+
+        StepVerifier.withVirtualTime(() -> client(tracker).getItems(ITEMS_URL).map(GisApiClientTest::firstName))
+                .expectSubscription()
+                // Ошибка первой попытки не завершает вызов — ждём дублирующий запрос
+                .expectNoEvent(Duration.ofMillis(200))
+                .then(() -> assertThat(requests).hasSize(2))
+                .thenAwait(Duration.ofMillis(100))
+                .expectNext("hedge")
+                .expectComplete()
+                .verify(WAIT);
+        assertThat(cancelled).isEmpty();
+    }
+
+    @Test
+    void sendsSingleRequestUntilLatencyIsKnown() {
+        LatencyTracker tracker = new LatencyTracker(16, 1, 2.0, 100, 1000, true);
+        upstream = attempt -> answer(attempt == 1 ? "first" : "hedge", Duration.ofMillis(900));
+
+        StepVerifier.withVirtualTime(() -> client(tracker).getItems(ITEMS_URL).map(GisApiClientTest::firstName))
+                .expectSubscription()
+                .thenAwait(Duration.ofMillis(900))
+                .expectNext("first")
+                .expectComplete()
+                .verify(WAIT);
+        assertThat(requests).hasSize(1);
+    }
+
+    @Test
+    void abortsAttemptAfterAdaptiveTimeout() {
+        config.getGis().getHedging().setEnabled(false);
+        LatencyTracker tracker = tracker(200);
+        upstream = attempt -> Mono.<ClientResponse>never().doOnCancel(() -> cancelled.add("first"));
+
+        StepVerifier.withVirtualTime(() -> client(tracker).getItems(ITEMS_URL))
+                .expectSubscription()
+                // p99 = 200 мс, запас x2 — а не потолок в 1000 мс
+                .expectNoEvent(Duration.ofMillis(399))
+                .thenAwait(Duration.ofMillis(1))
+                .expectError(TimeoutException.class)
+                .verify(WAIT);
+        assertThat(requests).hasSize(1);
+        assertThat(cancelled).containsExactly("first");
+    }
+
+    @Test
+    void parsesRoundTheClockSchedule() {
+        GisItemsResponse.Schedule schedule = new GisItemsResponse.Schedule();
+        schedule.setIs24x7(true);
+
+        assertThat(GisApiClient.parseSchedule(schedule)).isEqualTo(WeeklySchedule.ALWAYS_OPEN);
+    }
+
+    @Test
+    void parsesOvernightAndMidnightHours() {
+        GisItemsResponse.Schedule schedule = new GisItemsResponse.Schedule();
+        schedule.setFri(day(hours("18:00", "02:00")));
+        schedule.setSat(day(hours("10:00", "24:00")));
+        schedule.setSun(day(hours("22:00", "03:00")));
+
+        WeeklySchedule expected = WeeklySchedule.builder()
+                .add(DayOfWeek.FRIDAY, 18 * 60, 2 * 60)
+                .add(DayOfWeek.SATURDAY, 10 * 60, 24 * 60)
+                .add(DayOfWeek.SUNDAY, 22 * 60, 3 * 60)
+                .build();
+        assertThat(GisApiClient.parseSchedule(schedule)).isEqualTo(expected);
+    }
+
+    @Test
+    void skipsMalformedHoursAndTreatsMissingDaysAsClosed() {
+        GisItemsResponse.Schedule schedule = new GisItemsResponse.Schedule();
+        schedule.setMon(day(hours("10:00", "19:00"), hours("bad", "23:00"), hours("20:00", null)));
+        schedule.setTue(new GisItemsResponse.DaySchedule());
+
+        WeeklySchedule parsed = GisApiClient.parseSchedule(schedule);
+
+        assertThat(parsed).isEqualTo(WeeklySchedule.builder().add(DayOfWeek.MONDAY, 10 * 60, 19 * 60).build());
+        assertThat(parsed.isOpenAt(WeeklySchedule.MINUTES_PER_DAY + 12 * 60)).isFalse();
+    }
+
+    private static GisItemsResponse.DaySchedule day(GisItemsResponse.WorkingHours... hours) {
+        GisItemsResponse.DaySchedule day = new GisItemsResponse.DaySchedule();
+        day.setWorkingHours(List.of(hours));
+        return day;
+    }
+
+    private static GisItemsResponse.WorkingHours hours(String from, String to) {
+        GisItemsResponse.WorkingHours hours = new GisItemsResponse.WorkingHours();
+        hours.setFrom(from);
+        hours.setTo(to);
+        return hours;
+    }
+
+    private GisApiClient client(LatencyTracker tracker) {
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> Mono.defer(() -> {
+                    requests.add(request.url().toString());
+                    return upstream.apply(requests.size());
+                }))
+                .build();
+        return new GisApiClient(webClient, tracker, config, cityCache,
+                new GisPlaceCache(config, new JacksonConfig().objectMapper()), new CityClock(new RoutingConfig()));
+    }
+
+    private List<PlaceDto> search() {
+        return searchReactive().block();
+    }
+
+    // Одна категория — поиск идёт через searchSingleCategory; без замеров задержки дублей нет
+    private Mono<List<PlaceDto>> searchReactive() {
+        return client(new LatencyTracker(16, 1, 2.0, 100, 1000, true))
+                .searchPlacesReactive("Москва", List.of("Музеи"), 55.75, 37.62, 3000, 10);
+    }
+
+    private List<PlaceDto> searchWithoutCategories() {
+        return client(new LatencyTracker(16, 1, 2.0, 100, 1000, true))
+                .searchPlacesReactive("Москва", List.of(), 55.75, 37.62, 3000, 10)
+                .block();
+    }
+
+    private static String fixture(String path) throws IOException {
+        try (InputStream in = GisApiClientTest.class.getResourceAsStream(path)) {
+            assertThat(in).as(path).isNotNull();
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private CityRegionCache regions(Mono<String> region, Mono<String> rubric) {
+        return new CityRegionCache(config, null) {
+            @Override
+            public Mono<String> regionId(String city) {
+                return region;
+            }
+
+            @Override
+            public Mono<String> rubricId(String regionId, String category) {
+                return rubric;
+            }
+        };
+    }
+
+    // Ответ зависит от вида запроса: по рубрике или текстовый
+    private Function<Integer, Mono<ClientResponse>> byQuery(String byRubric, String byText) {
+        return attempt -> Mono.just(json(requests.get(attempt - 1).contains("rubric_id=") ? byRubric : byText));
+    }
+
+    private static List<String> names(List<PlaceDto> places) {
+        return places.stream().map(PlaceDto::getName).toList();
+    }
+
+    // Окно из одного замера: p95 и p99 равны ему
+    private static LatencyTracker tracker(long observedMillis) {
+        LatencyTracker tracker = new LatencyTracker(16, 1, 2.0, 100, 1000, true);
+        tracker.record(observedMillis);
+        return tracker;
+    }
+
+    private Mono<ClientResponse> answer(String name, Duration delay) {
+        return Mono.delay(delay)
+                .map(tick -> json(items(name)))
+                .doOnCancel(() -> cancelled.add(name));
+    }
+
+    private static ClientResponse json(String body) {
+        return ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(body)
+                .build();
+    }
+
+    private static String items(String... names) {
+        StringBuilder items = new StringBuilder();
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0) items.append(", ");
+            items.append("{\"id\": \"").append(names[i]).append("-").append(i)
+                    .append("\", \"name\": \"").append(names[i])
+                    .append("\", \"point\": {\"lat\": 55.75, \"lon\": 37.62}}");
+        }
+        return "{\"meta\": {\"code\": 200}, \"result\": {\"total\": " + names.length
+                + ", \"items\": [" + items + "]}}";
+    }
+
+    private static String firstName(GisItemsResponse response) {
+        return response.getResult().getItems().get(0).getName();
+    }
+
+    private static ApiKeysConfig config() {
+        ApiKeysConfig config = new ApiKeysConfig();
+        config.setGis(new ApiKeysConfig.Gis());
+        config.getGis().setBaseUrl("https://catalog.api.2gis.com");
+        config.getGis().setKey("test");
+        config.getGis().setCategoryTimeout(2000);
+        config.getGis().getPlaceCache().setEnabled(false);
+        config.getGis().getPlaceCache().setSnapshotPath("");
+        return config;
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.strollie.route.client;
+
+import com.strollie.route.model.dto.PlaceDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LlmApiClientTest {
+
+    @Test
+    void combinedDescriptionFollowsTspOrderAndSkipsDroppedPlaces() {
+        PlaceDto start = place("start");
+        PlaceDto museum = place("m");
+        PlaceDto park = place("p");
+        PlaceDto cafe = place("c");
+
+        LlmApiClient.RouteSelection selection = new LlmApiClient.RouteSelection(
+                List.of(museum, park, cafe),
+                "Спокойная прогулка по центру.",
+                Map.of("m", "Музей с богатой коллекцией.", "p", "Тенистый парк.", "c", "Уютная кофейня."));
+
+        // TSP поменял порядок и не успел в кофейню
+        assertThat(selection.describe(List.of(start, park, museum)))
+                .isEqualTo("Спокойная прогулка по центру. Тенистый парк. Музей с богатой коллекцией.");
+        assertThat(new LlmApiClient.RouteSelection(List.of(museum), null, Map.of()).describe(List.of(start, museum)))
+                .isNull();
+    }
+
+    private static PlaceDto place(String id) {
+        return PlaceDto.builder().id(id).name(id).build();
+    }
+
+}
@@ -0,0 +1,234 @@
+package com.strollie.route.client;
+
+import com.strollie.route.cache.LlmResponseCache;
+import com.strollie.route.config.ApiKeysConfig;
+import com.strollie.route.model.dto.PlaceDto;
+import com.strollie.route.util.LatencyTracker;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LlmCircuitBreakerTest {
+
+    private static final Duration OPEN = Duration.ofSeconds(30);
+
+    private final ApiKeysConfig config = config();
+    private final MutableClock clock = new MutableClock();
+    private final AtomicInteger probes = new AtomicInteger();
+    private HttpStatus probeStatus = HttpStatus.OK;
+
+    private final LlmCircuitBreaker breaker = new LlmCircuitBreaker(config, webClient(), clock);
+
+    @Test
+    void opensWhenFailureRateReachesThreshold() {
+        succeed(2);
+        // До minimum-calls цепь не размыкается
+        fail(1);
+        assertThat(breaker.getState()).isEqualTo(LlmCircuitBreaker.State.CLOSED);
+
+        fail(1);
+
+        assertThat(breaker.getState()).isEqualTo(LlmCircuitBreaker.State.OPEN);
+        assertThat(breaker.isCallPermitted()).isFalse();
+    }
+
+    @Test
+    void countsSlowCallsAsFailures() {
+        succeed(2);
+        for (int i = 0; i < 2; i++) {
+            breaker.protect(Mono.fromSupplier(() -> {
+                clock.advance(Duration.ofMillis(1500));
+                return "slow";
+            })).block();
+        }
+
+        assertThat(breaker.getState()).isEqualTo(LlmCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void countsStreamByFirstChunk() {
+        succeed(2);
+        // Долгая генерация после быстрого первого фрагмента — не ошибка
+        breaker.protect(Flux.just("a", "b").doOnNext(chunk -> clock.advance(Duration.ofMillis(800)))).blockLast();
+        breaker.protect(Flux.<String>error(new IllegalStateException("boom")))
+                .onErrorResume(e -> Flux.empty())
+                .blockLast();
+
+        assertThat(breaker.getState()).isEqualTo(LlmCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void skipsCallsWhileOpen() {
+        open();
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = breaker.protect(Mono.fromSupplier(() -> {
+            calls.incrementAndGet();
+            return "answer";
+        })).block();
+
+        assertThat(result).isNull();
+        assertThat(calls).hasValue(0);
+    }
+
+    @Test
+    void probesOnlyAfterOpenInterval() {
+        open();
+
+        clock.advance(OPEN.minusSeconds(1));
+        breaker.probe();
+        assertThat(probes).hasValue(0);
+        assertThat(breaker.getState()).isEqualTo(LlmCircuitBreaker.State.OPEN);
+
+        clock.advance(Duration.ofSeconds(1));
+        breaker.probe();
+
+        assertThat(probes).hasValue(1);
+        awaitState(LlmCircuitBreaker.State.CLOSED);
+        // Окно сброшено: одна ошибка после восстановления цепь не размыкает
+        fail(1);
+        assertThat(breaker.getState()).isEqualTo(LlmCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void failedProbeKeepsCircuitOpenForAnotherInterval() {
+        open();
+        probeStatus = HttpStatus.SERVICE_UNAVAILABLE;
+
+        clock.advance(OPEN);
+        breaker.probe();
+        awaitState(LlmCircuitBreaker.State.OPEN);
+
+        clock.advance(OPEN.minusSeconds(1));
+        breaker.probe();
+        assertThat(probes).hasValue(1);
+
+        probeStatus = HttpStatus.OK;
+        clock.advance(Duration.ofSeconds(1));
+        breaker.probe();
+
+        assertThat(probes).hasValue(2);
+        awaitState(LlmCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void passesEverythingThroughWhenDisabled() {
+        config.getLlm().getCircuitBreaker().setEnabled(false);
+        fail(10);
+
+        assertThat(breaker.isCallPermitted()).isTrue();
+        assertThat(breaker.protect(Mono.just("answer")).block()).isEqualTo("answer");
+    }
+
+    @Test
+    void describesRouteFromTemplateInDegradedMode() {
+        open();
+        LlmApiClient client = new LlmApiClient(webClient(), new LatencyTracker(10, 1, 1.5, 100, 1000, false),
+                breaker, config, null, new LlmResponseCache(config));
+        List<PlaceDto> route = List.of(
+                place("start", "Старт", null),
+                place("m", "Эрмитаж", "Музеи"),
+                place("p", "Летний сад", null));
+
+        assertThat(client.generateRouteDescription(route, "Культурный вечер"))
+                .isEqualTo("Маршрут из 2 мест: Эрмитаж (Музеи) → Летний сад. Приятной прогулки!");
+        assertThat(client.templateDescription(List.of(route.get(0), route.get(1))))
+                .isEqualTo("Маршрут из 1 места: Эрмитаж (Музеи). Приятной прогулки!");
+        assertThat(client.templateDescription(List.of(route.get(0)))).isEqualTo("Приятной прогулки!");
+        assertThat(probes).hasValue(0);
+    }
+
+    private void open() {
+        fail(4);
+        assertThat(breaker.getState()).isEqualTo(LlmCircuitBreaker.State.OPEN);
+    }
+
+    private void succeed(int calls) {
+        for (int i = 0; i < calls; i++) {
+            breaker.protect(Mono.just("answer")).block();
+        }
+    }
+
+    private void fail(int calls) {
+        for (int i = 0; i < calls; i++) {
+            breaker.protect(Mono.error(new IllegalStateException("boom"))).onErrorResume(e -> Mono.empty()).block();
+        }
+    }
+
+    private void awaitState(LlmCircuitBreaker.State expected) {
+        // Пробный запрос подписывается асинхронно, хотя заглушка отвечает сразу
+        long deadline = System.nanoTime() + Duration.ofSeconds(1).toNanos();
+        while (breaker.getState() != expected && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertThat(breaker.getState()).isEqualTo(expected);
+    }
+
+    private WebClient webClient() {
+        return WebClient.builder()
+                .exchangeFunction(request -> {
+                    probes.incrementAndGet();
+                    return Mono.just(ClientResponse.create(probeStatus).build());
+                })
+                .build();
+    }
+
+    private static PlaceDto place(String id, String name, String category) {
+        return PlaceDto.builder().id(id).name(name).category(category).build();
+    }
+
+    private static ApiKeysConfig config() {
+        ApiKeysConfig config = new ApiKeysConfig();
+        config.setLlm(new ApiKeysConfig.Llm());
+        config.getLlm().setBaseUrl("http://llm.test");
+        config.getLlm().setModel("test-model");
+        config.getLlm().setKey("test-key");
+
+        ApiKeysConfig.CircuitBreaker settings = config.getLlm().getCircuitBreaker();
+        settings.setWindowSize(4);
+        settings.setMinimumCalls(4);
+        settings.setFailureRateThreshold(0.5);
+        settings.setSlowCallMillis(1000);
+        settings.setOpenMillis((int) OPEN.toMillis());
+        return config;
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2024-06-03T10:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.strollie.route.model.schedule;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WeeklyScheduleTest {
+
+    // 2024-06-03 — понедельник
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2024, 6, 3, 0, 0);
+
+    @Test
+    void keepsOvernightHoursOpenAfterMidnight() {
+        WeeklySchedule schedule = WeeklySchedule.builder()
+                .add(DayOfWeek.FRIDAY, 18 * 60, 2 * 60)
+                .build();
+
+        assertThat(schedule.isOpenAt(MONDAY.plusDays(4).withHour(17).withMinute(59))).isFalse();
+        assertThat(schedule.isOpenAt(MONDAY.plusDays(4).withHour(23))).isTrue();
+        assertThat(schedule.isOpenAt(MONDAY.plusDays(5).withHour(1).withMinute(30))).isTrue();
+        assertThat(schedule.isOpenAt(MONDAY.plusDays(5).withHour(2))).isFalse();
+    }
+
+    @Test
+    void wrapsSundayNightIntoMonday() {
+        WeeklySchedule schedule = WeeklySchedule.builder()
+                .add(DayOfWeek.SUNDAY, 22 * 60, 3 * 60)
+                .build();
+        int sundayLate = 6 * WeeklySchedule.MINUTES_PER_DAY + 23 * 60 + 30;
+
+        assertThat(schedule.intervals()).containsExactly(0, 3 * 60,
+                6 * WeeklySchedule.MINUTES_PER_DAY + 22 * 60, WeeklySchedule.MINUTES_PER_WEEK);
+        assertThat(schedule.isOpenAt(MONDAY.withHour(2))).isTrue();
+        assertThat(schedule.isOpenAt(MONDAY.withHour(3))).isFalse();
+        // Часовой визит с 23:30 воскресенья продолжается в понедельник следующей недели
+        assertThat(schedule.earliestVisitStart(sundayLate, 60)).isEqualTo(sundayLate);
+        assertThat(schedule.earliestVisitStart(sundayLate, 4 * 60)).isEqualTo(sundayLate + 7 * 24 * 60 - 90);
+    }
+
+    @Test
+    void treatsMidnightAsEndOfDay() {
+        WeeklySchedule schedule = WeeklySchedule.builder()
+                .add(DayOfWeek.MONDAY, WeeklySchedule.parseMinutes("10:00"), WeeklySchedule.parseMinutes("24:00"))
+                .build();
+
+        assertThat(schedule.isOpenAt(MONDAY.withHour(23).withMinute(59))).isTrue();
+        assertThat(schedule.isOpenAt(MONDAY.plusDays(1))).isFalse();
+    }
+
+    @Test
+    void rejectsMalformedTimes() {
+        assertThat(WeeklySchedule.parseMinutes("00:00")).isZero();
+        assertThat(WeeklySchedule.parseMinutes("09:30")).isEqualTo(570);
+        assertThat(WeeklySchedule.parseMinutes("24:00")).isEqualTo(WeeklySchedule.MINUTES_PER_DAY);
+
+        assertThat(WeeklySchedule.parseMinutes(null)).isEqualTo(-1);
+        assertThat(WeeklySchedule.parseMinutes("")).isEqualTo(-1);
+        assertThat(WeeklySchedule.parseMinutes("9:30")).isEqualTo(-1);
+        assertThat(WeeklySchedule.parseMinutes("09-30")).isEqualTo(-1);
+        assertThat(WeeklySchedule.parseMinutes("ab:cd")).isEqualTo(-1);
+        assertThat(WeeklySchedule.parseMinutes("12:60")).isEqualTo(-1);
+        assertThat(WeeklySchedule.parseMinutes("24:01")).isEqualTo(-1);
+        assertThat(WeeklySchedule.parseMinutes("-1:00")).isEqualTo(-1);
+    }
+
+    @Test
+    void waitsForOpeningAndSkipsToNextWorkingDay() {
+        WeeklySchedule schedule = WeeklySchedule.builder()
+                .add(DayOfWeek.MONDAY, 10 * 60, 18 * 60)
+                .add(DayOfWeek.WEDNESDAY, 10 * 60, 18 * 60)
+                .build();
+
+        assertThat(schedule.earliestVisitStart(9 * 60, 60)).isEqualTo(10 * 60);
+        assertThat(schedule.earliestVisitStart(12 * 60, 60)).isEqualTo(12 * 60);
+        // Не успеваем до закрытия в понедельник — ближайшее окно в среду
+        assertThat(schedule.earliestVisitStart(17 * 60 + 30, 60))
+                .isEqualTo(2 * WeeklySchedule.MINUTES_PER_DAY + 10 * 60);
+        assertThat(WeeklySchedule.builder().build().earliestVisitStart(0, 60)).isEqualTo(-1);
+    }
+
+    @Test
+    void mergesOverlappingHours() {
+        WeeklySchedule schedule = WeeklySchedule.builder()
+                .add(DayOfWeek.TUESDAY, 14 * 60, 20 * 60)
+                .add(DayOfWeek.TUESDAY, 9 * 60, 15 * 60)
+                .build();
+        int tuesday = WeeklySchedule.MINUTES_PER_DAY;
+
+        assertThat(schedule.intervals()).containsExactly(tuesday + 9 * 60, tuesday + 20 * 60);
+        assertThat(WeeklySchedule.ofIntervals(schedule.intervals())).isEqualTo(schedule);
+        assertThatThrownBy(() -> WeeklySchedule.ofIntervals(new int[]{60, 120, 100, 200}))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+}
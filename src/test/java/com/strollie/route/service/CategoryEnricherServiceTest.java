@@ -0,0 +1,105 @@
+package com.strollie.route.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.strollie.route.cache.EnrichmentSemanticCache;
+import com.strollie.route.client.LlmCircuitBreaker;
+import com.strollie.route.config.ApiKeysConfig;
+import com.strollie.route.model.dto.CategoryDto;
+import com.strollie.route.util.LatencyTracker;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CategoryEnricherServiceTest {
+
+    private static final CategoryIndex INDEX = CategoryIndex.of(List.of(
+            category("168", "Музеи"),
+            category("168000", "Парки"),
+            category("161", "Кафе")
+    ));
+
+    private final ApiKeysConfig config = config();
+    private final AtomicInteger llmCalls = new AtomicInteger();
+    private String llmContent = "{\"categories\": [\"Музеи\", \"Парки\"]}";
+
+    @Test
+    void treatsMissingCategoriesAsEmptyWithoutDescription() {
+        assertThat(service(INDEX).enrichCategories(null, null, "Москва")).isEmpty();
+        assertThat(service(INDEX).enrichCategories(null, " ", "Москва")).isEmpty();
+        assertThat(llmCalls).hasValue(0);
+    }
+
+    @Test
+    void treatsMissingCategoriesAsEmptyWhenCatalogIsEmpty() {
+        assertThat(service(CategoryIndex.EMPTY).enrichCategories(null, "Погулять по центру", "Москва")).isEmpty();
+        assertThat(llmCalls).hasValue(0);
+    }
+
+    @Test
+    void enrichesMissingCategoriesFromDescription() {
+        List<String> enriched = service(INDEX).enrichCategories(null, "Музеи и прогулка в парке", "Москва");
+
+        assertThat(enriched).containsExactly("Музеи", "Парки");
+        assertThat(llmCalls).hasValue(1);
+    }
+
+    @Test
+    void fallsBackToEmptyCategoriesWhenLlmAnswerIsBroken() {
+        llmContent = "not json";
+
+        assertThat(service(INDEX).enrichCategories(null, "Музеи и прогулка в парке", "Москва")).isEmpty();
+    }
+
+    private CategoryEnricherService service(CategoryIndex index) {
+        WebClient webClient = webClient();
+        CategoryCacheService categories = new CategoryCacheService(new ObjectMapper(), event -> {
+        }) {
+            @Override
+            public CategoryIndex getIndex() {
+                return index;
+            }
+        };
+        return new CategoryEnricherService(webClient, new LatencyTracker(10, 1, 1.5, 100, 1000, false),
+                new LlmCircuitBreaker(config, webClient), config, categories, new EnrichmentSemanticCache(config));
+    }
+
+    private WebClient webClient() {
+        return WebClient.builder()
+                .exchangeFunction(request -> {
+                    llmCalls.incrementAndGet();
+                    String body = "{\"choices\": [{\"message\": {\"content\": "
+                            + new ObjectMapper().valueToTree(llmContent) + "}}]}";
+                    return Mono.just(ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body(body)
+                            .build());
+                })
+                .build();
+    }
+
+    private static ApiKeysConfig config() {
+        ApiKeysConfig config = new ApiKeysConfig();
+        config.setLlm(new ApiKeysConfig.Llm());
+        config.getLlm().setBaseUrl("http://llm.test");
+        config.getLlm().setModel("test-model");
+        config.getLlm().setKey("test-key");
+        return config;
+    }
+
+    private static CategoryDto category(String id, String name) {
+        CategoryDto category = new CategoryDto();
+        category.setId(id);
+        category.setName(name);
+        return category;
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.strollie.route.service;
+
+import com.strollie.route.model.dto.CategoryDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CategoryIndexTest {
+
+    private final CategoryIndex index = CategoryIndex.of(List.of(
+            category("168", "Музеи"),
+            category("19358", "Интерактивные музеи"),
+            category("8883", "Аренда музыкальных инструментов"),
+            category("24169", "Ботанические сады"),
+            category("110357", "Верёвочные парки"),
+            category("168000", "Парки"),
+            category("161", "Кафе"),
+            category("164", "Бары")
+    ));
+
+    @Test
+    void resolvesExactNamesIgnoringCaseAndYo() {
+        assertThat(index.resolve(" музеи ").getId()).isEqualTo("168");
+        assertThat(index.resolve("Веревочные парки").getId()).isEqualTo("110357");
+        assertThat(index.byId("161").getName()).isEqualTo("Кафе");
+    }
+
+    @Test
+    void resolvesInflectedNames() {
+        assertThat(index.resolve("Музей").getName()).isEqualTo("Музеи");
+        assertThat(index.resolve("Парк").getName()).isEqualTo("Парки");
+        assertThat(index.resolve("Ботанический сад").getName()).isEqualTo("Ботанические сады");
+        assertThat(index.resolve("Интерактивный музей").getName()).isEqualTo("Интерактивные музеи");
+    }
+
+    @Test
+    void doesNotGuessShortOrUnrelatedNames() {
+        assertThat(index.resolve("Бар")).isNull();
+        assertThat(index.resolve("Театры")).isNull();
+    }
+
+    @Test
+    void suggestsByNameThenWordPrefix() {
+        assertThat(index.suggest("муз", 10)).extracting(CategoryDto::getName)
+                .containsExactly("Музеи", "Интерактивные музеи", "Аренда музыкальных инструментов");
+        assertThat(index.suggest("парк", 1)).extracting(CategoryDto::getName).containsExactly("Парки");
+        assertThat(index.suggest(" ", 10)).isEmpty();
+    }
+
+    private static CategoryDto category(String id, String name) {
+        CategoryDto category = new CategoryDto();
+        category.setId(id);
+        category.setName(name);
+        return category;
+    }
+
+}
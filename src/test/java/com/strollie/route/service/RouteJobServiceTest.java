@@ -0,0 +1,120 @@
+package com.strollie.route.service;
+
+import com.strollie.route.config.RoutingConfig;
+import com.strollie.route.model.dto.RouteRequest;
+import com.strollie.route.model.dto.RouteResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RouteJobServiceTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private RouteJobService service;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        service.shutdown();
+    }
+
+    @Test
+    void longPollReturnsResultOnCompletion() {
+        service = service(1, 1);
+        RouteJob job = service.submit(new RouteRequest(), true);
+
+        assertThat(service.await(job, Duration.ZERO).block().getStatus()).isIn(RouteJob.Status.QUEUED, RouteJob.Status.RUNNING);
+
+        release.countDown();
+        RouteJob finished = service.await(job, Duration.ofSeconds(5)).block();
+
+        assertThat(finished.getStatus()).isEqualTo(RouteJob.Status.DONE);
+        assertThat(finished.getResult().getDescription()).isEqualTo("ok");
+        assertThat(service.find(job.getId())).containsSame(job);
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() {
+        service = service(1, 1);
+        service.submit(new RouteRequest(), true);
+        service.submit(new RouteRequest(), true);
+
+        // Один выполняется, один в очереди — третьему места нет
+        assertThatThrownBy(() -> service.submit(new RouteRequest(), true))
+                .isInstanceOf(RouteJobQueueFullException.class);
+    }
+
+    @Test
+    void unfinishedJobsOutliveResultTtl() {
+        // Нулевой TTL и размер хранилища: результат исчезает сразу после завершения
+        service = service(1, 1, 0, 0);
+        RouteJob running = service.submit(new RouteRequest(), true);
+        RouteJob queued = service.submit(new RouteRequest(), true);
+
+        assertThat(service.find(running.getId())).containsSame(running);
+        assertThat(service.find(queued.getId())).containsSame(queued);
+
+        release.countDown();
+        assertThat(service.await(queued, Duration.ofSeconds(5)).block().getStatus()).isEqualTo(RouteJob.Status.DONE);
+    }
+
+    @Test
+    void failedJobsFinishWithGenericMessage() {
+        for (Throwable failure : List.of(new IllegalStateException("jdbc://internal-host:5432"), new StackOverflowError())) {
+            service = new RouteJobService(failingOrchestration(failure), new RoutingConfig());
+            RouteJob job = service.submit(new RouteRequest(), true);
+
+            RouteJob finished = service.await(job, Duration.ofSeconds(5)).block();
+
+            assertThat(finished.getStatus()).isEqualTo(RouteJob.Status.FAILED);
+            assertThat(finished.getError()).isEqualTo(RouteJobService.FAILURE_MESSAGE);
+            assertThat(service.find(job.getId())).containsSame(job);
+            service.shutdown();
+        }
+    }
+
+    private static RouteOrchestrationService failingOrchestration(Throwable failure) {
+        return new RouteOrchestrationService(null, null, null, null, null, null) {
+            @Override
+            public RouteResponse generateRoute(RouteRequest request, boolean useLlmCache) {
+                if (failure instanceof Error error) {
+                    throw error;
+                }
+                throw (RuntimeException) failure;
+            }
+        };
+    }
+
+    private RouteJobService service(int concurrency, int queueCapacity) {
+        return service(concurrency, queueCapacity, 15, 10000);
+    }
+
+    private RouteJobService service(int concurrency, int queueCapacity, int ttlMinutes, int maxJobs) {
+        RoutingConfig config = new RoutingConfig();
+        config.getJobs().setConcurrency(concurrency);
+        config.getJobs().setQueueCapacity(queueCapacity);
+        config.getJobs().setResultTtlMinutes(ttlMinutes);
+        config.getJobs().setMaxJobs(maxJobs);
+
+        RouteOrchestrationService orchestration = new RouteOrchestrationService(null, null, null, null, null, null) {
+            @Override
+            public RouteResponse generateRoute(RouteRequest request, boolean useLlmCache) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return RouteResponse.builder().places(List.of()).description("ok").build();
+            }
+        };
+        return new RouteJobService(orchestration, config);
+    }
+
+}
@@ -0,0 +1,267 @@
+package com.strollie.route.service;
+
+import com.strollie.route.client.GisApiClient;
+import com.strollie.route.client.LlmApiClient;
+import com.strollie.route.config.RoutingConfig;
+import com.strollie.route.model.dto.PlaceDto;
+import com.strollie.route.model.dto.RouteRequest;
+import com.strollie.route.model.dto.RouteResponse;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RouteOrchestrationServiceTest {
+
+    private static final Duration WAIT = Duration.ofSeconds(1);
+
+    private final Sinks.One<List<String>> enrichment = Sinks.one();
+    private final List<Search> searches = new ArrayList<>();
+    private final List<PlaceDto> candidates = new ArrayList<>();
+    private final Sinks.Many<String> descriptionDeltas = Sinks.many().unicast().onBackpressureBuffer();
+    private final AtomicInteger descriptionStreams = new AtomicInteger();
+    private final List<List<String>> enrichedFrom = new ArrayList<>();
+    private int placesPerCategory = 10;
+
+    @Test
+    void searchesOriginalCategoriesWhileEnrichmentRuns() {
+        RouteOrchestrationService service = service();
+
+        CompletableFuture<RouteResponse> route = service.generateRouteReactive(request("Музеи", "Парки")).toFuture();
+
+        // Обогащение ещё не ответило, а поиск по исходным категориям уже идёт
+        assertThat(route).isNotDone();
+        assertThat(searches).containsExactly(new Search(List.of("Музеи", "Парки"), 10));
+
+        enrichment.tryEmitValue(List.of("Музеи", " парки", "Театры", "Галереи", "Кафе"));
+
+        assertThat(route).succeedsWithin(WAIT);
+        // Повторно ищутся только добавленные категории, с лимитом на пять категорий
+        assertThat(searches).containsExactly(
+                new Search(List.of("Музеи", "Парки"), 10),
+                new Search(List.of("Театры", "Галереи", "Кафе"), 6));
+    }
+
+    @Test
+    void mergesCandidatesWithFinalPerCategoryLimit() {
+        RouteOrchestrationService service = service();
+
+        CompletableFuture<RouteResponse> route = service.generateRouteReactive(request("Музеи", "Парки")).toFuture();
+        enrichment.tryEmitValue(List.of("Музеи", "Парки", "Театры", "Галереи", "Кафе"));
+
+        assertThat(route).succeedsWithin(WAIT);
+        // Базовый поиск вернул по 10 мест, но в кандидаты каждая категория отдаёт только 6
+        assertThat(candidates).hasSize(30);
+        for (String category : List.of("Музеи", "Парки", "Театры", "Галереи", "Кафе")) {
+            assertThat(candidates).filteredOn(place -> place.getCategory().equals(category)).hasSize(6);
+        }
+    }
+
+    @Test
+    void skipsSecondSearchWhenEnrichmentAddsNothing() {
+        RouteOrchestrationService service = service();
+
+        CompletableFuture<RouteResponse> route = service.generateRouteReactive(request("Музеи")).toFuture();
+        enrichment.tryEmitValue(List.of("музеи"));
+
+        assertThat(route).succeedsWithin(WAIT);
+        assertThat(searches).filteredOn(search -> !search.categories().isEmpty())
+                .containsExactly(new Search(List.of("Музеи"), 10));
+        assertThat(candidates).hasSize(10);
+    }
+
+    @Test
+    void searchesEnrichedCategoriesWhenRequestHasNone() {
+        RouteOrchestrationService service = service();
+        RouteRequest request = RouteRequest.builder()
+                .city("Москва")
+                .categories(null)
+                .description("Культурный вечер в центре")
+                .durationHours(3)
+                .startPoint(new RouteRequest.Point(55.75, 37.62))
+                .build();
+
+        CompletableFuture<RouteResponse> route = service.generateRouteReactive(request).toFuture();
+        enrichment.tryEmitValue(List.of("Музеи", "Парки"));
+
+        assertThat(route).succeedsWithin(WAIT);
+        assertThat(enrichedFrom).containsExactly(List.of());
+        assertThat(searches).containsExactly(new Search(List.of("Музеи", "Парки"), 30));
+    }
+
+    @Test
+    void streamsRouteBeforeDescriptionDeltasAndFinishesWithDone() {
+        enrichment.tryEmitValue(List.of("Музеи"));
+
+        StepVerifier.create(service().streamRoute(request("Музеи"), true))
+                // Маршрут уходит сразу после TSP, пока описание ещё не начало генерироваться
+                .assertNext(event -> {
+                    assertThat(event.name()).isEqualTo("route");
+                    RouteResponse route = (RouteResponse) event.data();
+                    assertThat(route.getPlaces()).extracting(PlaceDto::getId)
+                            .containsExactly("start", "Музеи-0", "Музеи-1", "Музеи-2");
+                    assertThat(route.getDescription()).isNull();
+                })
+                .then(() -> {
+                    descriptionDeltas.tryEmitNext("Начните с ");
+                    descriptionDeltas.tryEmitNext("музея.");
+                })
+                .assertNext(event -> assertThat(event).isEqualTo(
+                        new RouteOrchestrationService.RouteEvent("description", Map.of("delta", "Начните с "))))
+                .assertNext(event -> assertThat(event).isEqualTo(
+                        new RouteOrchestrationService.RouteEvent("description", Map.of("delta", "музея."))))
+                .then(descriptionDeltas::tryEmitComplete)
+                .assertNext(event -> {
+                    assertThat(event.name()).isEqualTo("done");
+                    RouteResponse route = (RouteResponse) event.data();
+                    assertThat(route.getDescription()).isEqualTo("Начните с музея.");
+                    assertThat(route.getPlaces()).hasSize(4);
+                })
+                .expectComplete()
+                .verify(WAIT);
+        assertThat(descriptionStreams).hasValue(1);
+    }
+
+    @Test
+    void streamsEmptyRouteWithoutDescription() {
+        placesPerCategory = 0;
+        enrichment.tryEmitValue(List.of("Музеи"));
+
+        StepVerifier.create(service().streamRoute(request("Музеи"), true))
+                .assertNext(event -> {
+                    assertThat(event.name()).isEqualTo("route");
+                    assertThat(((RouteResponse) event.data()).getPlaces()).isEmpty();
+                })
+                .assertNext(event -> {
+                    assertThat(event.name()).isEqualTo("done");
+                    assertThat(((RouteResponse) event.data()).getPlaces()).isEmpty();
+                })
+                .expectComplete()
+                .verify(WAIT);
+        assertThat(descriptionStreams).hasValue(0);
+    }
+
+    private RouteOrchestrationService service() {
+        return new RouteOrchestrationService(gis(), filter(), llm(), tsp(), enricher(), new CityClock(new RoutingConfig()));
+    }
+
+    private GisApiClient gis() {
+        return new GisApiClient(null, null, null, null, null, null) {
+            @Override
+            public Mono<List<List<PlaceDto>>> searchEachCategoryReactive(String city, List<String> categoryNames,
+                                                                         double lat, double lon, int radiusMeters,
+                                                                         int limitPerCategory) {
+                return Mono.fromSupplier(() -> {
+                    searches.add(new Search(categoryNames, limitPerCategory));
+                    // 2GIS отдаёт полную страницу независимо от того, сколько мест войдёт в кандидаты
+                    return categoryNames.stream().map(category -> places(category, placesPerCategory)).toList();
+                });
+            }
+
+            @Override
+            public Mono<List<PlaceDto>> searchPlacesReactive(String city, List<String> categoryNames,
+                                                             double lat, double lon, int radiusMeters,
+                                                             int totalPageSize) {
+                return Mono.fromSupplier(() -> {
+                    searches.add(new Search(categoryNames, totalPageSize));
+                    return categoryNames.stream().flatMap(category -> places(category, placesPerCategory).stream())
+                            .toList();
+                });
+            }
+        };
+    }
+
+    private CategoryEnricherService enricher() {
+        return new CategoryEnricherService(null, null, null, null, null, null) {
+            @Override
+            public Mono<List<String>> enrichCategoriesReactive(List<String> originalCategories, String userDescription,
+                                                               String city) {
+                enrichedFrom.add(originalCategories);
+                return enrichment.asMono();
+            }
+        };
+    }
+
+    private LlmFilterService filter() {
+        return new LlmFilterService(null) {
+            @Override
+            public Mono<List<PlaceDto>> filterAndRankPlacesReactive(List<PlaceDto> places, String userDescription,
+                                                                    int durationHours) {
+                candidates.addAll(places);
+                return Mono.just(places.subList(0, 3));
+            }
+        };
+    }
+
+    private LlmApiClient llm() {
+        return new LlmApiClient(null, null, null, null, null, null) {
+            @Override
+            public boolean isCombinedMode() {
+                return false;
+            }
+
+            @Override
+            public Mono<String> generateRouteDescriptionReactive(List<PlaceDto> route, String userDescription) {
+                return Mono.just("Описание");
+            }
+
+            @Override
+            public Flux<String> streamRouteDescription(List<PlaceDto> route, String userDescription) {
+                descriptionStreams.incrementAndGet();
+                return descriptionDeltas.asFlux();
+            }
+        };
+    }
+
+    // Порядок обхода в этих тестах не важен — старт и места как есть
+    private static TspSolverService tsp() {
+        return new TspSolverService(null, List.of()) {
+            @Override
+            public Solution solve(PlaceDto startPoint, List<PlaceDto> places, LocalDateTime departure, int durationHours) {
+                List<PlaceDto> route = new ArrayList<>(places.size() + 1);
+                route.add(startPoint);
+                route.addAll(places);
+                return new Solution(route, 0, 0, false, List.of());
+            }
+        };
+    }
+
+    private static List<PlaceDto> places(String category, int count) {
+        List<PlaceDto> places = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            places.add(PlaceDto.builder()
+                    .id(category + "-" + i)
+                    .name(category + " " + i)
+                    .category(category)
+                    .lat(55.75 + i * 0.001)
+                    .lon(37.62)
+                    .build());
+        }
+        return places;
+    }
+
+    private static RouteRequest request(String... categories) {
+        return RouteRequest.builder()
+                .city("Москва")
+                .categories(List.of(categories))
+                .description("Культурный вечер в центре")
+                .durationHours(3)
+                .startPoint(new RouteRequest.Point(55.75, 37.62))
+                .build();
+    }
+
+    private record Search(List<String> categories, int limitPerCategory) {
+    }
+
+}
@@ -0,0 +1,166 @@
+package com.strollie.route.service;
+
+import com.strollie.route.config.RoutingConfig;
+import com.strollie.route.model.dto.PlaceDto;
+import com.strollie.route.model.schedule.WeeklySchedule;
+import com.strollie.route.service.tsp.OrOptImprover;
+import com.strollie.route.service.tsp.TwoOptImprover;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TspSolverServiceTest {
+
+    private static final PlaceDto START = place("start", 59.9300, 30.3000);
+
+    @Test
+    void localSearchRemovesCrossingLeftByGreedy() {
+        // Жадный обход уходит к ближайшей точке на востоке и вынужден возвращаться через весь маршрут
+        List<PlaceDto> places = List.of(
+                place("1", 59.9300, 30.3020),
+                place("2", 59.9300, 30.2950),
+                place("3", 59.9300, 30.3100),
+                place("4", 59.9300, 30.2850)
+        );
+
+        TspSolverService.Solution solution = heuristicSolver(true).solve(START, places);
+
+        assertThat(solution.exact()).isFalse();
+        assertThat(solution.route().get(0)).isEqualTo(START);
+        assertThat(solution.route()).containsExactlyInAnyOrderElementsOf(concat(START, places));
+        assertThat(solution.savedMeters()).isPositive();
+        assertThat(solution.distanceMeters()).isLessThan(solution.initialDistanceMeters());
+    }
+
+    @Test
+    void improvementNeverMakesClosedTourLonger() {
+        List<PlaceDto> places = List.of(
+                place("1", 59.9350, 30.3100),
+                place("2", 59.9250, 30.3150),
+                place("3", 59.9400, 30.2900),
+                place("4", 59.9200, 30.2950),
+                place("5", 59.9320, 30.3300)
+        );
+
+        TspSolverService.Solution solution = heuristicSolver(false).solve(START, places);
+
+        assertThat(solution.route()).hasSize(places.size() + 1);
+        assertThat(solution.distanceMeters()).isLessThanOrEqualTo(solution.initialDistanceMeters());
+    }
+
+    @Test
+    void smallRoutesAreSolvedExactlyAndNeverLoseToHeuristic() {
+        List<PlaceDto> places = List.of(
+                place("1", 59.9350, 30.3100),
+                place("2", 59.9250, 30.3150),
+                place("3", 59.9400, 30.2900),
+                place("4", 59.9200, 30.2950),
+                place("5", 59.9320, 30.3300),
+                place("6", 59.9280, 30.2800)
+        );
+
+        TspSolverService.Solution exact = solver(false, 10).solve(START, places);
+        TspSolverService.Solution heuristic = heuristicSolver(false).solve(START, places);
+
+        assertThat(exact.exact()).isTrue();
+        assertThat(exact.route().get(0)).isEqualTo(START);
+        assertThat(exact.distanceMeters()).isLessThanOrEqualTo(heuristic.distanceMeters() + 1e-6);
+    }
+
+    @Test
+    void timeWindowsSkipPlaceThatClosesBeforeArrival() {
+        // Понедельник 17:30, музей закрывается в 18:00 — 45-минутный визит уже не помещается
+        LocalDateTime departure = LocalDateTime.of(2026, 10, 12, 17, 30);
+        PlaceDto museum = place("museum", 59.9350, 30.3100);
+        museum.setSchedule(WeeklySchedule.builder().add(DayOfWeek.MONDAY, 10 * 60, 18 * 60).build());
+        PlaceDto park = place("park", 59.9320, 30.3050);
+        PlaceDto bar = place("bar", 59.9280, 30.2950);
+        bar.setSchedule(WeeklySchedule.builder().add(DayOfWeek.MONDAY, 18 * 60, 2 * 60).build());
+
+        TspSolverService.Solution solution = timeWindowSolver(true).solve(START, List.of(museum, park, bar), departure, 3);
+
+        assertThat(solution.route()).containsExactly(START, park, bar);
+        assertThat(solution.unreachable()).containsExactly(museum);
+    }
+
+    @Test
+    void timeWindowsKeepShortestTourWhenEverythingIsOpen() {
+        // Четыре визита по 45 минут не помещаются в час, но места уже отобраны под длительность прогулки
+        List<PlaceDto> places = List.of(
+                place("1", 59.9350, 30.3100),
+                place("2", 59.9250, 30.3150),
+                place("3", 59.9400, 30.2900),
+                place("4", 59.9200, 30.2950)
+        );
+
+        TspSolverService.Solution shortest = solver(false, 10).solve(START, places);
+        TspSolverService.Solution scheduled = timeWindowSolver(false)
+                .solve(START, places, LocalDateTime.of(2026, 10, 12, 12, 0), 1);
+
+        assertThat(scheduled.route()).containsExactlyElementsOf(shortest.route());
+        assertThat(scheduled.unreachable()).isEmpty();
+    }
+
+    @Test
+    void timeWindowsNeverReturnEmptyRoute() {
+        PlaceDto museum = place("museum", 59.9350, 30.3100);
+        museum.setSchedule(WeeklySchedule.builder().add(DayOfWeek.TUESDAY, 10 * 60, 18 * 60).build());
+        PlaceDto gallery = place("gallery", 59.9250, 30.3150);
+        gallery.setSchedule(WeeklySchedule.builder().add(DayOfWeek.TUESDAY, 10 * 60, 18 * 60).build());
+
+        // Понедельник вечером закрыто всё — остаётся кратчайший обход
+        TspSolverService.Solution solution = timeWindowSolver(false)
+                .solve(START, List.of(museum, gallery), LocalDateTime.of(2026, 10, 12, 19, 0), 2);
+
+        assertThat(solution.route()).containsExactlyInAnyOrder(START, museum, gallery);
+        assertThat(solution.unreachable()).isEmpty();
+    }
+
+    @Test
+    void timeWindowsAreOptIn() {
+        PlaceDto museum = place("museum", 59.9350, 30.3100);
+        museum.setSchedule(WeeklySchedule.builder().add(DayOfWeek.TUESDAY, 10 * 60, 18 * 60).build());
+        List<PlaceDto> places = List.of(museum, place("park", 59.9320, 30.3050));
+
+        TspSolverService.Solution solution = solver(false, 10)
+                .solve(START, places, LocalDateTime.of(2026, 10, 12, 19, 0), 2);
+
+        assertThat(solution.route()).containsExactlyElementsOf(solver(false, 10).solve(START, places).route());
+    }
+
+    private static TspSolverService heuristicSolver(boolean openPath) {
+        return solver(openPath, 0);
+    }
+
+    private static TspSolverService timeWindowSolver(boolean openPath) {
+        return solver(openPath, 10, true);
+    }
+
+    private static TspSolverService solver(boolean openPath, int exactMaxPlaces) {
+        return solver(openPath, exactMaxPlaces, false);
+    }
+
+    private static TspSolverService solver(boolean openPath, int exactMaxPlaces, boolean timeWindows) {
+        RoutingConfig config = new RoutingConfig();
+        config.getTimeWindows().setEnabled(timeWindows);
+        config.getTsp().setOpenPath(openPath);
+        config.getTsp().setExactMaxPlaces(exactMaxPlaces);
+        TspSolverService solver = new TspSolverService(config, List.of(new TwoOptImprover(), new OrOptImprover()));
+        solver.init();
+        return solver;
+    }
+
+    private static PlaceDto place(String id, double lat, double lon) {
+        return PlaceDto.builder().id(id).name(id).lat(lat).lon(lon).build();
+    }
+
+    private static List<PlaceDto> concat(PlaceDto first, List<PlaceDto> rest) {
+        return Stream.concat(Stream.of(first), rest.stream()).toList();
+    }
+
+}
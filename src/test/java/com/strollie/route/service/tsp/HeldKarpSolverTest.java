@@ -0,0 +1,136 @@
+package com.strollie.route.service.tsp;
+
+import com.strollie.route.model.dto.PlaceDto;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+
+class HeldKarpSolverTest {
+
+    private final Random random = new Random(42);
+
+    @Test
+    void matchesBruteForceOnSmallRoutes() {
+        for (int trial = 0; trial < 200; trial++) {
+            int n = 2 + random.nextInt(7);
+            boolean openPath = random.nextBoolean();
+            DistanceMatrix distances = randomMatrix(n);
+
+            int[] tour = HeldKarpSolver.solve(distances, openPath);
+
+            assertThat(tour[0]).isZero();
+            assertThat(tour).hasSize(n);
+            assertThat(length(tour, distances, openPath))
+                    .isCloseTo(bruteForce(distances, openPath), offset(1e-6));
+        }
+    }
+
+    @Test
+    void matchesBruteForceAtDefaultThreshold() {
+        // 10 мест — порог routing.tsp.exact-max-places по умолчанию
+        DistanceMatrix distances = randomMatrix(11);
+
+        for (boolean openPath : new boolean[]{true, false}) {
+            int[] tour = HeldKarpSolver.solve(distances, openPath);
+
+            assertThat(tour).containsExactlyInAnyOrder(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+            assertThat(length(tour, distances, openPath))
+                    .isCloseTo(bruteForce(distances, openPath), offset(1e-6));
+        }
+    }
+
+    @Test
+    void rejectsRoutesAboveMaxPlaces() {
+        DistanceMatrix distances = randomMatrix(HeldKarpSolver.MAX_PLACES + 2);
+
+        assertThatThrownBy(() -> HeldKarpSolver.solve(distances, true))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Замер, а не проверка корректности: в обычный прогон не входит, запуск — {@code ./gradlew benchmark}.
+     */
+    @Test
+    @Tag("benchmark")
+    void solvesDefaultThresholdWithinMillisecond() {
+        double tenPlaces = averageMillis(10);
+        double twelvePlaces = averageMillis(12);
+
+        // Бюджет точного решения на порог routing.tsp.exact-max-places по умолчанию
+        assertThat(tenPlaces).as("Held-Karp: 10 мест %.3f мс", tenPlaces).isLessThan(1.0);
+        // 12 мест — для сравнения роста времени, без бюджета
+        assertThat(twelvePlaces).as("Held-Karp: 12 мест %.3f мс", twelvePlaces).isPositive();
+    }
+
+    private double averageMillis(int places) {
+        List<DistanceMatrix> routes = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            routes.add(randomMatrix(places + 1));
+        }
+        for (int i = 0; i < 500; i++) {
+            HeldKarpSolver.solve(routes.get(i % routes.size()), i % 2 == 0);
+        }
+
+        int runs = 1000;
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            HeldKarpSolver.solve(routes.get(i % routes.size()), false);
+        }
+        return (System.nanoTime() - start) / 1e6 / runs;
+    }
+
+    private DistanceMatrix randomMatrix(int n) {
+        List<PlaceDto> points = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            points.add(PlaceDto.builder()
+                    .lat(59.92 + random.nextDouble() * 0.03)
+                    .lon(30.28 + random.nextDouble() * 0.06)
+                    .build());
+        }
+        return DistanceMatrix.of(points);
+    }
+
+    private static double bruteForce(DistanceMatrix distances, boolean openPath) {
+        int n = distances.size();
+        int[] tour = new int[n];
+        for (int i = 0; i < n; i++) {
+            tour[i] = i;
+        }
+        return permute(tour, 1, distances, openPath);
+    }
+
+    private static double permute(int[] tour, int position, DistanceMatrix distances, boolean openPath) {
+        if (position == tour.length) {
+            return length(tour, distances, openPath);
+        }
+        double best = Double.MAX_VALUE;
+        for (int i = position; i < tour.length; i++) {
+            swap(tour, position, i);
+            best = Math.min(best, permute(tour, position + 1, distances, openPath));
+            swap(tour, position, i);
+        }
+        return best;
+    }
+
+    private static double length(int[] tour, DistanceMatrix distances, boolean openPath) {
+        double length = 0;
+        for (int i = 1; i < tour.length; i++) {
+            length += distances.between(tour[i - 1], tour[i]);
+        }
+        return openPath ? length : length + distances.between(tour[tour.length - 1], tour[0]);
+    }
+
+    private static void swap(int[] array, int i, int j) {
+        int tmp = array[i];
+        array[i] = array[j];
+        array[j] = tmp;
+    }
+
+}
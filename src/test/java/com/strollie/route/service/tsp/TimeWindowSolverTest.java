@@ -0,0 +1,126 @@
+package com.strollie.route.service.tsp;
+
+import com.strollie.route.model.dto.PlaceDto;
+import com.strollie.route.model.schedule.WeeklySchedule;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeWindowSolverTest {
+
+    private static final double WALKING_METERS_PER_MINUTE = 70;
+    private static final int VISIT_MINUTES = 30;
+
+    private final Random random = new Random(42);
+
+    @Test
+    void matchesBruteForceOnSmallRoutes() {
+        for (int trial = 0; trial < 200; trial++) {
+            TimeWindowProblem problem = randomProblem(2 + random.nextInt(7), random.nextBoolean());
+
+            int[] tour = TimeWindowSolver.solveExact(problem);
+            int[] best = bruteForce(problem);
+
+            assertThat(tour[0]).isZero();
+            assertThat(tour.length - 1).isEqualTo(best[0]);
+            if (best[0] > 0) {
+                assertThat(end(tour, problem)).isEqualTo(best[1]);
+            }
+        }
+    }
+
+    @Test
+    void dropUnreachableKeepsOnlyFeasibleVisits() {
+        for (int trial = 0; trial < 200; trial++) {
+            TimeWindowProblem problem = randomProblem(2 + random.nextInt(7), random.nextBoolean());
+            int[] order = new int[problem.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+
+            int[] tour = TimeWindowSolver.dropUnreachable(order, problem);
+
+            assertThat(tour[0]).isZero();
+            assertThat(tour).isSorted();
+            assertThat(end(tour, problem)).isNotNegative();
+            assertThat(tour.length).isLessThanOrEqualTo(bruteForce(problem)[0] + 1);
+        }
+    }
+
+    private TimeWindowProblem randomProblem(int n, boolean openPath) {
+        List<PlaceDto> points = new ArrayList<>();
+        WeeklySchedule[] schedules = new WeeklySchedule[n];
+        for (int i = 0; i < n; i++) {
+            points.add(PlaceDto.builder()
+                    .lat(59.92 + random.nextDouble() * 0.03)
+                    .lon(30.28 + random.nextDouble() * 0.06)
+                    .build());
+            if (i > 0 && random.nextInt(5) > 0) {
+                schedules[i] = randomSchedule();
+            }
+        }
+
+        // Выход в случайный день с 8:00 до 20:00, прогулка на 2-6 часов
+        int departure = random.nextInt(7) * WeeklySchedule.MINUTES_PER_DAY + (8 + random.nextInt(12)) * 60;
+        int duration = (2 + random.nextInt(5)) * 60;
+        return TimeWindowProblem.of(DistanceMatrix.of(points), schedules, departure, duration, VISIT_MINUTES,
+                WALKING_METERS_PER_MINUTE, openPath);
+    }
+
+    private WeeklySchedule randomSchedule() {
+        WeeklySchedule.Builder builder = WeeklySchedule.builder();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (random.nextInt(4) > 0) {
+                int from = (6 + random.nextInt(10)) * 60;
+                // Часть мест работает после полуночи
+                int to = (from / 60 + 2 + random.nextInt(10)) % 24 * 60;
+                builder.add(day, from, to);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Перебор всех упорядоченных подмножеств: {максимум мест, самое раннее окончание при этом максимуме}.
+     */
+    private static int[] bruteForce(TimeWindowProblem problem) {
+        int[] best = {0, Integer.MAX_VALUE};
+        search(problem, 0, problem.departure(), 0, 0, best);
+        return best;
+    }
+
+    private static void search(TimeWindowProblem problem, int last, int time, int visited, int count, int[] best) {
+        if (count > 0) {
+            int end = problem.end(last, time);
+            if (count > best[0] || count == best[0] && end < best[1]) {
+                best[0] = count;
+                best[1] = end;
+            }
+        }
+        for (int next = 1; next < problem.size(); next++) {
+            if ((visited & (1 << next)) == 0) {
+                int finish = problem.visit(last, next, time);
+                if (finish >= 0) {
+                    search(problem, next, finish, visited | (1 << next), count + 1, best);
+                }
+            }
+        }
+    }
+
+    private static int end(int[] tour, TimeWindowProblem problem) {
+        int time = problem.departure();
+        for (int i = 1; i < tour.length; i++) {
+            time = problem.visit(tour[i - 1], tour[i], time);
+            if (time < 0) {
+                return -1;
+            }
+        }
+        return problem.end(tour[tour.length - 1], time);
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.strollie.route.util;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyTrackerTest {
+
+    @Test
+    void computesPercentilesOverWindow() {
+        LatencyTracker tracker = filled(new LatencyTracker(100, 4, 1.5, 100, 1000, true));
+
+        assertThat(tracker.percentile(0.5)).isEqualTo(50);
+        assertThat(tracker.percentile(0.95)).isEqualTo(95);
+        assertThat(tracker.percentile(0.99)).isEqualTo(99);
+    }
+
+    @Test
+    void forgetsSamplesOutsideWindow() {
+        LatencyTracker tracker = new LatencyTracker(4, 4, 1.5, 1, 1000, true);
+        for (int i = 0; i < 4; i++) {
+            tracker.record(900);
+        }
+        for (int i = 0; i < 4; i++) {
+            tracker.record(10);
+        }
+
+        assertThat(tracker.percentile(0.99)).isEqualTo(10);
+    }
+
+    @Test
+    void usesCeilingUntilEnoughSamples() {
+        LatencyTracker tracker = new LatencyTracker(100, 10, 1.5, 100, 1000, true);
+        for (int i = 0; i < 9; i++) {
+            tracker.record(50);
+        }
+
+        assertThat(tracker.percentile(0.99)).isEqualTo(-1);
+        assertThat(tracker.timeout()).isEqualTo(Duration.ofMillis(1000));
+        assertThat(tracker.hedgeDelay(20)).isNull();
+    }
+
+    @Test
+    void scalesTimeoutWithinBounds() {
+        assertThat(filled(new LatencyTracker(100, 4, 1.5, 100, 1000, true)).timeout())
+                .isEqualTo(Duration.ofMillis(149));
+        assertThat(filled(new LatencyTracker(100, 4, 1.5, 200, 1000, true)).timeout())
+                .isEqualTo(Duration.ofMillis(200));
+        assertThat(filled(new LatencyTracker(100, 4, 1.5, 100, 120, true)).timeout())
+                .isEqualTo(Duration.ofMillis(120));
+        // Без адаптации таймаут всегда верхний
+        assertThat(filled(new LatencyTracker(100, 4, 1.5, 100, 1000, false)).timeout())
+                .isEqualTo(Duration.ofMillis(1000));
+    }
+
+    @Test
+    void hedgesAfterP95ButNotBeforeMinimum() {
+        LatencyTracker tracker = filled(new LatencyTracker(100, 4, 1.5, 100, 1000, true));
+
+        assertThat(tracker.hedgeDelay(20)).isEqualTo(Duration.ofMillis(95));
+        assertThat(tracker.hedgeDelay(300)).isEqualTo(Duration.ofMillis(300));
+    }
+
+    @Test
+    void tracksSuccessfulCalls() {
+        LatencyTracker tracker = new LatencyTracker(10, 1, 1.5, 10, 1000, true);
+
+        tracker.track(Mono.just("ok")).block();
+        tracker.track(Mono.empty()).block();
+
+        assertThat(tracker.percentile(0.5)).isNotNegative();
+    }
+
+    @Test
+    void ignoresFailedAndCancelledCalls() {
+        LatencyTracker tracker = new LatencyTracker(10, 1, 1.5, 10, 1000, true);
+
+        tracker.track(Mono.error(new IllegalStateException("boom"))).onErrorResume(e -> Mono.empty()).block();
+        // Как проигравший дублирующий запрос
+        tracker.track(Mono.never()).subscribe().dispose();
+
+        assertThat(tracker.percentile(0.5)).isEqualTo(-1);
+    }
+
+    @Test
+    void tracksTimeoutsAsLowerBound() {
+        LatencyTracker tracker = new LatencyTracker(10, 1, 1.5, 10, 50, true);
+
+        tracker.track(Mono.never()).onErrorResume(TimeoutException.class, e -> Mono.empty()).block();
+
+        assertThat(tracker.percentile(0.5)).isGreaterThanOrEqualTo(50);
+    }
+
+    /**
+     * Окно из замеров 1..100 мс: p95 = 95, p99 = 99.
+     */
+    private static LatencyTracker filled(LatencyTracker tracker) {
+        for (int millis = 1; millis <= 100; millis++) {
+            tracker.record(millis);
+        }
+        return tracker;
+    }
+
+}
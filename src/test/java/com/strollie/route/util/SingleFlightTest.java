@@ -0,0 +1,106 @@
+package com.strollie.route.util;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SingleFlightTest {
+
+    private static final Duration WAIT = Duration.ofSeconds(1);
+
+    private final SingleFlight<String, String> flight = new SingleFlight<>();
+    private final AtomicInteger subscriptions = new AtomicInteger();
+
+    @Test
+    void concurrentCallersShareOneUpstreamSubscription() {
+        Sinks.One<String> upstream = Sinks.one();
+
+        CompletableFuture<String> first = flight.execute("key", () -> call(upstream)).toFuture();
+        CompletableFuture<String> second = flight.execute("key", () -> call(upstream)).toFuture();
+
+        assertThat(subscriptions).hasValue(1);
+        assertThat(flight.inFlight()).isEqualTo(1);
+
+        upstream.tryEmitValue("value");
+
+        assertThat(first).succeedsWithin(WAIT).isEqualTo("value");
+        assertThat(second).succeedsWithin(WAIT).isEqualTo("value");
+    }
+
+    @Test
+    void cancelledCallerDoesNotCancelOthers() {
+        Sinks.One<String> upstream = Sinks.one();
+        AtomicBoolean cancelled = new AtomicBoolean();
+
+        Disposable impatient = flight.execute("key", () -> call(upstream).doOnCancel(() -> cancelled.set(true)))
+                .subscribe();
+        CompletableFuture<String> patient = flight.execute("key", () -> call(upstream)).toFuture();
+
+        // Как таймаут у одного из ожидающих
+        impatient.dispose();
+        upstream.tryEmitValue("value");
+
+        assertThat(cancelled).isFalse();
+        assertThat(patient).succeedsWithin(WAIT).isEqualTo("value");
+    }
+
+    @Test
+    void propagatesErrorsToEveryCaller() {
+        Sinks.One<String> upstream = Sinks.one();
+
+        CompletableFuture<String> first = flight.execute("key", () -> call(upstream)).toFuture();
+        CompletableFuture<String> second = flight.execute("key", () -> call(upstream)).toFuture();
+        upstream.tryEmitError(new IllegalStateException("upstream failed"));
+
+        assertThat(first).failsWithin(WAIT)
+                .withThrowableOfType(ExecutionException.class).withCauseInstanceOf(IllegalStateException.class);
+        assertThat(second).failsWithin(WAIT)
+                .withThrowableOfType(ExecutionException.class).withCauseInstanceOf(IllegalStateException.class);
+        assertThat(flight.inFlight()).isZero();
+    }
+
+    @Test
+    void propagatesEmptyResult() {
+        assertThat(flight.execute("key", Mono::empty).blockOptional(WAIT)).isEmpty();
+        assertThat(flight.inFlight()).isZero();
+    }
+
+    @Test
+    void releasesKeyAfterCompletion() {
+        assertThat(flight.execute("key", () -> call(Mono.just("first"))).block(WAIT)).isEqualTo("first");
+        assertThat(flight.inFlight()).isZero();
+
+        // Результат не кэшируется: следующий вызов идет в источник заново
+        assertThat(flight.execute("key", () -> call(Mono.just("second"))).block(WAIT)).isEqualTo("second");
+        assertThat(subscriptions).hasValue(2);
+    }
+
+    @Test
+    void keepsDifferentKeysApart() {
+        Sinks.One<String> upstream = Sinks.one();
+
+        flight.execute("first", () -> call(upstream)).subscribe();
+        flight.execute("second", () -> call(upstream)).subscribe();
+
+        assertThat(subscriptions).hasValue(2);
+        assertThat(flight.inFlight()).isEqualTo(2);
+    }
+
+    private Mono<String> call(Sinks.One<String> upstream) {
+        return call(upstream.asMono());
+    }
+
+    private Mono<String> call(Mono<String> upstream) {
+        return upstream.doOnSubscribe(subscription -> subscriptions.incrementAndGet());
+    }
+
+}
@@ -22,7 +22,12 @@ class OpenApiDocsTest {
         mockMvc.perform(get("/v3/api-docs"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.paths['/api/routes/generate']").exists())
-                .andExpect(jsonPath("$.paths['/api/categories']").exists());
+                .andExpect(jsonPath("$.paths['/api/routes/generate/reactive']").exists())
+                .andExpect(jsonPath("$.paths['/api/routes/generate/stream']").exists())
+                .andExpect(jsonPath("$.paths['/api/routes/jobs']").exists())
+                .andExpect(jsonPath("$.paths['/api/routes/jobs/{id}']").exists())
+                .andExpect(jsonPath("$.paths['/api/categories']").exists())
+                .andExpect(jsonPath("$.paths['/api/categories/suggest']").exists());
     }
 }
 